@@ -0,0 +1,247 @@
+package edu.iastate.cs2280.hw3;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Chain of StoutList-style nodes that any number of threads may append to
+ * without locks, and that one consumer drains a node at a time. It is meant as
+ * an ingest buffer, so it has no positional access and, unlike StoutList.add(E),
+ * does not reject duplicates.
+ *
+ * A producer claims the next free slot of the last node with a compare-and-set
+ * on its count, then publishes the element into that slot. When the last node
+ * is full, the producer that links a new node with a compare-and-set on next
+ * puts its element in the node's first slot before linking it. Every other
+ * producer retries on the new node. All nodes but the last one are full, so the
+ * half-full rule of StoutList holds.
+ *
+ * drain() passes the consumer each node's published elements as a slice of the
+ * node's own array, without copying.
+ */
+public class AppendOnlyStoutList<E> {
+    /**
+     * Default number of elements that may be stored in each node.
+     */
+    private static final int DEFAULT_NODESIZE = 64;
+
+    private static final VarHandle COUNT;
+    private static final VarHandle NEXT;
+    private static final VarHandle LAST;
+    private static final VarHandle SLOT = MethodHandles.arrayElementVarHandle(Object[].class);
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            COUNT = lookup.findVarHandle(Node.class, "count", int.class);
+            NEXT = lookup.findVarHandle(Node.class, "next", Node.class);
+            LAST = lookup.findVarHandle(AppendOnlyStoutList.class, "last", Node.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /**
+     * Number of elements that can be stored in each node.
+     */
+    private final int nodeSize;
+
+    /**
+     * Node that producers append to. It may lag one node behind while a new node
+     * is being linked, in which case producers move it forward.
+     */
+    private volatile Node last;
+
+    /**
+     * Oldest node not yet drained, and the number of its elements already
+     * drained. Only touched by drain().
+     */
+    private Node first;
+    private int taken;
+
+    /**
+     * Number of elements appended and drained so far.
+     */
+    private final LongAdder appended = new LongAdder();
+    private volatile long drained;
+
+    /**
+     * Constructs an empty list with the default node size.
+     */
+    public AppendOnlyStoutList() {
+        this(DEFAULT_NODESIZE);
+    }
+
+    /**
+     * Constructs an empty list with the given node size.
+     *
+     * @param nodeSize number of elements that may be stored in each node, must be
+     *                 an even number
+     */
+    public AppendOnlyStoutList(int nodeSize) {
+        if (nodeSize <= 0 || nodeSize % 2 != 0)
+            throw new IllegalArgumentException();
+
+        this.nodeSize = nodeSize;
+        first = last = new Node(nodeSize);
+    }
+
+    /**
+     * Appends an item without taking a lock. Duplicates are not checked for.
+     *
+     * @param item the item to append
+     * @return true
+     */
+    public boolean add(E item) {
+        if (item == null)
+            throw new NullPointerException();
+
+        while (true) {
+            Node n = last;
+            int c = n.count;
+            if (c < nodeSize) {
+                if (COUNT.compareAndSet(n, c, c + 1)) {
+                    SLOT.setRelease(n.data, c, item);
+                    appended.increment();
+                    return true;
+                }
+                continue;
+            }
+
+            Node next = n.next;
+            if (next == null) {
+                Node fresh = new Node(nodeSize);
+                fresh.data[0] = item;
+                fresh.count = 1;
+                if (NEXT.compareAndSet(n, null, fresh)) {
+                    LAST.compareAndSet(this, n, fresh);
+                    appended.increment();
+                    return true;
+                }
+            } else {
+                // Help the producer that linked next
+                LAST.compareAndSet(this, n, next);
+            }
+        }
+    }
+
+    /**
+     * Appends every item of the collection.
+     *
+     * @param c items to append
+     * @return true if c was not empty
+     */
+    public boolean addAll(Collection<? extends E> c) {
+        for (E item : c) {
+            add(item);
+        }
+        return !c.isEmpty();
+    }
+
+    /**
+     * Hands every element published so far to the consumer, node by node, and
+     * removes it from the list. Each call receives a node's array with the offset
+     * and number of elements taken from it; the array must not be written to or
+     * kept beyond the call. Drained slots are cleared and nodes that have been
+     * drained in full are dropped. Draining stops at the first slot that has been
+     * claimed but not yet published, and the next call resumes there, so a
+     * producer stalled between its claim and its publish never blocks a drain.
+     * Only one thread may drain at a time, but producers keep appending meanwhile.
+     *
+     * @param consumer receives the elements of each node
+     * @return the number of elements drained
+     */
+    public synchronized int drain(StoutList.ChunkConsumer consumer) {
+        if (consumer == null)
+            throw new NullPointerException();
+
+        int total = 0;
+        Node n = first;
+        while (true) {
+            int claimed = Math.min((int) COUNT.getVolatile(n), nodeSize);
+            int end = taken;
+            while (end < claimed && SLOT.getAcquire(n.data, end) != null) {
+                end++;
+            }
+            if (end > taken) {
+                consumer.accept(n.data, taken, end - taken);
+                Arrays.fill(n.data, taken, end, null);
+                total += end - taken;
+                taken = end;
+            }
+
+            Node next = n.next;
+            if (end < nodeSize || next == null)
+                break;
+            n = next;
+            taken = 0;
+        }
+        first = n;
+        drained += total;
+        return total;
+    }
+
+    /**
+     * Drains every element published so far into the collection.
+     *
+     * @param c collection receiving the elements, in order
+     * @return the number of elements drained
+     */
+    public int drainTo(Collection<? super E> c) {
+        return drain((chunk, offset, length) -> {
+            for (int i = offset; i < offset + length; i++) {
+                c.add((E) chunk[i]);
+            }
+        });
+    }
+
+    /**
+     * @return the number of elements appended but not yet drained; only exact
+     *         while no thread is appending or draining
+     */
+    public int size() {
+        return (int) Math.max(0, Math.min(Integer.MAX_VALUE, appended.sum() - drained));
+    }
+
+    /**
+     * @return true if size() is 0
+     */
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * @return the number of elements that can be stored in each node
+     */
+    public int nodeSize() {
+        return nodeSize;
+    }
+
+    /**
+     * Node type for this list.
+     */
+    private static final class Node {
+        /**
+         * Array of actual data elements. A slot holds null until the producer that
+         * claimed it has published its element, and again once it is drained.
+         */
+        final Object[] data;
+
+        /**
+         * Number of slots claimed, advanced by compare-and-set.
+         */
+        volatile int count;
+
+        /**
+         * Link to next node, set once by compare-and-set.
+         */
+        volatile Node next;
+
+        Node(int nodeSize) {
+            data = new Object[nodeSize];
+        }
+    }
+}
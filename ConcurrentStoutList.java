@@ -0,0 +1,742 @@
+package edu.iastate.cs2280.hw3;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+
+/**
+ * Thread-safe variant of StoutList that locks single nodes instead of the whole
+ * list, so threads working on different parts of the list do not wait for each
+ * other.
+ *
+ * Every node, including the dummy head, has its own lock, which guards its
+ * elements, its next link and the previous link of its successor. Locks are
+ * always taken front to back, so no two threads can deadlock:
+ * <ul>
+ * <li>add(E) locks only tail.previous, and checks after locking that the node is
+ * still the last one.</li>
+ * <li>Positional operations and remove(Object) walk from head hand over hand,
+ * holding at most the target node and its predecessor, and lock the successor as
+ * well while a removal borrows from or merges with it.</li>
+ * <li>contains() reads a concurrent map of element counts and takes no node
+ * lock.</li>
+ * <li>sort(), removeIf(), removeRange() and clear() lock every node.</li>
+ * </ul>
+ * Iterators and toArray() work on a copy taken hand over hand, so they never
+ * throw ConcurrentModificationException and do not support modification.
+ *
+ * The list follows the same rules as StoutList: add(E) rejects duplicates, a full
+ * node is split in half on insertion, and after a removal a node that drops below
+ * half full borrows from or merges with its successor.
+ */
+public class ConcurrentStoutList<E extends Comparable<? super E>> extends AbstractList<E> {
+    /**
+     * Default number of elements that may be stored in each node.
+     */
+    private static final int DEFAULT_NODESIZE = 4;
+
+    /**
+     * Number of elements that can be stored in each node.
+     */
+    private final int nodeSize;
+
+    /**
+     * Dummy nodes. The lock of head guards the link to the first node.
+     */
+    private final Node head;
+    private final Node tail;
+
+    /**
+     * Number of elements in the list, updated while the edited node is locked.
+     */
+    private final AtomicInteger size = new AtomicInteger();
+
+    /**
+     * Number of occurrences of each element. A count is raised before its element
+     * is linked and lowered after it is unlinked, so contains() may report an
+     * element that is being added but never misses one that is in the list.
+     */
+    private final ConcurrentHashMap<E, Integer> membership = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs an empty list with the default node size.
+     */
+    public ConcurrentStoutList() {
+        this(DEFAULT_NODESIZE);
+    }
+
+    /**
+     * Constructs an empty list with the given node size.
+     *
+     * @param nodeSize number of elements that may be stored in each node, must be
+     *                 an even number
+     */
+    public ConcurrentStoutList(int nodeSize) {
+        if (nodeSize <= 0 || nodeSize % 2 != 0)
+            throw new IllegalArgumentException();
+
+        this.nodeSize = nodeSize;
+        // dummy nodes
+        head = new Node();
+        tail = new Node();
+        head.next = tail;
+        tail.previous = head;
+    }
+
+    /**
+     * @return the size of elements in the list
+     */
+    @Override
+    public int size() {
+        return size.get();
+    }
+
+    /**
+     * Appends an item, unless an equal item is already present.
+     *
+     * @param item the item to add
+     * @return true if the item was added
+     */
+    @Override
+    public boolean add(E item) {
+        if (item == null)
+            throw new NullPointerException();
+        if (membership.putIfAbsent(item, 1) != null)
+            return false;
+
+        while (true) {
+            Node last = tail.previous;
+            last.lock.lock();
+            try {
+                // Another thread may have appended a node or unlinked this one
+                if (last.removed || last.next != tail)
+                    continue;
+
+                if (last != head && last.count < nodeSize) {
+                    last.data[last.count++] = item;
+                } else {
+                    Node n = new Node();
+                    n.data[0] = item;
+                    n.count = 1;
+                    linkAfter(last, n);
+                }
+                size.incrementAndGet();
+                return true;
+            } finally {
+                last.lock.unlock();
+            }
+        }
+    }
+
+    @Override
+    public void add(int pos, E item) {
+        if (item == null)
+            throw new NullPointerException();
+        if (pos < 0)
+            throw new IndexOutOfBoundsException("Position " + pos + " is out of bounds.");
+
+        membership.merge(item, 1, Integer::sum);
+        Cursor cursor = seek(pos);
+        try {
+            Node prev = cursor.prev;
+            Node node = cursor.node;
+            int offset = cursor.offset;
+            if (node == tail && offset > 0) {
+                forget(item);
+                throw new IndexOutOfBoundsException("Position " + pos + " is out of bounds.");
+            }
+
+            if (offset == 0 && prev != head && prev.count < nodeSize) {
+                prev.data[prev.count++] = item;
+            } else if (node == tail) {
+                Node n = new Node();
+                n.data[0] = item;
+                n.count = 1;
+                linkAfter(prev, n);
+            } else if (node.count < nodeSize) {
+                insertAt(node, offset, item);
+            } else {
+                // Split the full node, moving its upper half to a new successor
+                Node n = new Node();
+                int mid = nodeSize / 2;
+                System.arraycopy(node.data, mid, n.data, 0, nodeSize - mid);
+                Arrays.fill(node.data, mid, nodeSize, null);
+                n.count = nodeSize - mid;
+                node.count = mid;
+                linkAfter(node, n);
+                if (offset <= mid) {
+                    insertAt(node, offset, item);
+                } else {
+                    insertAt(n, offset - mid, item);
+                }
+            }
+            size.incrementAndGet();
+        } finally {
+            cursor.release();
+        }
+    }
+
+    @Override
+    public E get(int pos) {
+        if (pos < 0)
+            throw new IndexOutOfBoundsException("Position " + pos + " is out of bounds.");
+
+        Cursor cursor = seek(pos);
+        try {
+            if (cursor.node == tail)
+                throw new IndexOutOfBoundsException("Position " + pos + " is out of bounds.");
+            return element(cursor.node, cursor.offset);
+        } finally {
+            cursor.release();
+        }
+    }
+
+    @Override
+    public E set(int pos, E item) {
+        if (item == null)
+            throw new NullPointerException();
+        if (pos < 0)
+            throw new IndexOutOfBoundsException("Position " + pos + " is out of bounds.");
+
+        Cursor cursor = seek(pos);
+        try {
+            if (cursor.node == tail)
+                throw new IndexOutOfBoundsException("Position " + pos + " is out of bounds.");
+            E old = element(cursor.node, cursor.offset);
+            membership.merge(item, 1, Integer::sum);
+            cursor.node.data[cursor.offset] = item;
+            forget(old);
+            return old;
+        } finally {
+            cursor.release();
+        }
+    }
+
+    @Override
+    public E remove(int pos) {
+        if (pos < 0)
+            throw new IndexOutOfBoundsException("Position " + pos + " is out of bounds.");
+
+        Cursor cursor = seek(pos);
+        try {
+            Node node = cursor.node;
+            if (node == tail)
+                throw new IndexOutOfBoundsException("Position " + pos + " is out of bounds.");
+            return removeFrom(cursor.prev, node, cursor.offset);
+        } finally {
+            cursor.release();
+        }
+    }
+
+    /**
+     * Removes the first occurrence of the item, walking from head hand over hand.
+     *
+     * @param item the item to remove
+     * @return true if the item was found and removed
+     */
+    @Override
+    public boolean remove(Object item) {
+        if (!contains(item))
+            return false;
+
+        Node prev = head;
+        prev.lock.lock();
+        Node node = prev.next;
+        node.lock.lock();
+        try {
+            while (node != tail) {
+                for (int i = 0; i < node.count; i++) {
+                    if (node.data[i].equals(item)) {
+                        removeFrom(prev, node, i);
+                        return true;
+                    }
+                }
+                prev.lock.unlock();
+                prev = node;
+                node = node.next;
+                node.lock.lock();
+            }
+            return false;
+        } finally {
+            node.lock.unlock();
+            prev.lock.unlock();
+        }
+    }
+
+    /**
+     * Removes the elements at positions from through to - 1, locking all nodes.
+     * Backs subList(from, to).clear().
+     */
+    @Override
+    protected void removeRange(int from, int to) {
+        ArrayList<Node> locked = lockAll();
+        try {
+            int count = size.get();
+            if (from < 0 || to > count || from > to) {
+                throw new IndexOutOfBoundsException("Range " + from + " to " + to + " is out of bounds.");
+            }
+            if (from == to)
+                return;
+
+            Object[] items = new Object[count];
+            int pos = 0;
+            for (Node n = head.next; n != tail; n = n.next) {
+                System.arraycopy(n.data, 0, items, pos, n.count);
+                pos += n.count;
+            }
+            for (int i = from; i < to; i++) {
+                forget((E) items[i]);
+            }
+            System.arraycopy(items, to, items, from, count - to);
+            repack(items, count - (to - from));
+        } finally {
+            unlockAll(locked);
+        }
+    }
+
+    /**
+     * Checks the element counts, without locking any node.
+     */
+    @Override
+    public boolean contains(Object item) {
+        return item != null && membership.containsKey(item);
+    }
+
+    /**
+     * Scans the nodes from the front, hand over hand.
+     */
+    @Override
+    public int indexOf(Object item) {
+        if (!contains(item))
+            return -1;
+
+        int pos = 0;
+        Node node = head;
+        node.lock.lock();
+        try {
+            while (node.next != tail) {
+                Node next = node.next;
+                next.lock.lock();
+                node.lock.unlock();
+                node = next;
+                for (int i = 0; i < node.count; i++) {
+                    if (node.data[i].equals(item))
+                        return pos + i;
+                }
+                pos += node.count;
+            }
+            return -1;
+        } finally {
+            node.lock.unlock();
+        }
+    }
+
+    /**
+     * Scans a copy of the list from the back, since locks may only be taken front
+     * to back.
+     */
+    @Override
+    public int lastIndexOf(Object item) {
+        if (!contains(item))
+            return -1;
+
+        Object[] items = toArray();
+        for (int i = items.length - 1; i >= 0; i--) {
+            if (items[i].equals(item))
+                return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Copies the elements hand over hand, so the copy reflects every edit made
+     * ahead of the scan and none made behind it.
+     */
+    @Override
+    public Object[] toArray() {
+        Object[] items = new Object[size.get()];
+        int count = 0;
+        Node node = head;
+        node.lock.lock();
+        try {
+            while (node.next != tail) {
+                Node next = node.next;
+                next.lock.lock();
+                node.lock.unlock();
+                node = next;
+                if (count + node.count > items.length)
+                    items = Arrays.copyOf(items, Math.max(2 * items.length, count + node.count));
+                System.arraycopy(node.data, 0, items, count, node.count);
+                count += node.count;
+            }
+        } finally {
+            node.lock.unlock();
+        }
+        return count == items.length ? items : Arrays.copyOf(items, count);
+    }
+
+    /**
+     * Returns an iterator over a copy of the list; it does not support remove().
+     */
+    @Override
+    public Iterator<E> iterator() {
+        return listIterator(0);
+    }
+
+    /**
+     * Returns a list iterator over a copy of the list; it does not support
+     * modification.
+     */
+    @Override
+    public ListIterator<E> listIterator(int index) {
+        List<E> copy = (List<E>) (List<?>) Arrays.asList(toArray());
+        return Collections.unmodifiableList(copy).listIterator(index);
+    }
+
+    /**
+     * Removes every element, locking all nodes.
+     */
+    @Override
+    public void clear() {
+        removeIf(item -> true);
+    }
+
+    /**
+     * Removes every element that satisfies the filter. All nodes are locked while
+     * the survivors are packed into new full nodes.
+     *
+     * @param filter predicate returning true for elements to remove
+     * @return true if any element was removed
+     */
+    @Override
+    public boolean removeIf(Predicate<? super E> filter) {
+        if (filter == null)
+            throw new NullPointerException();
+
+        ArrayList<Node> locked = lockAll();
+        try {
+            Object[] items = new Object[size.get()];
+            int count = 0;
+            boolean[] doomed = new boolean[items.length];
+            for (Node n = head.next; n != tail; n = n.next) {
+                for (int i = 0; i < n.count; i++, count++) {
+                    items[count] = n.data[i];
+                    doomed[count] = filter.test(element(n, i));
+                }
+            }
+
+            int kept = 0;
+            for (int i = 0; i < count; i++) {
+                if (doomed[i]) {
+                    forget((E) items[i]);
+                } else {
+                    items[kept++] = items[i];
+                }
+            }
+            if (kept == count)
+                return false;
+            repack(items, kept);
+            return true;
+        } finally {
+            unlockAll(locked);
+        }
+    }
+
+    @Override
+    public boolean removeAll(Collection<?> c) {
+        if (c == null)
+            throw new NullPointerException();
+        return removeIf(c::contains);
+    }
+
+    @Override
+    public boolean retainAll(Collection<?> c) {
+        if (c == null)
+            throw new NullPointerException();
+        return removeIf(item -> !c.contains(item));
+    }
+
+    /**
+     * Sort all elements in the list in the NON-DECREASING order, locking all
+     * nodes. After sorting, all nodes but (possibly) the last one are full of
+     * elements.
+     */
+    public void sort() {
+        sort(null);
+    }
+
+    /**
+     * Sort all elements in the list in the NON-INCREASING order, locking all
+     * nodes.
+     */
+    public void sortReverse() {
+        sort(Collections.reverseOrder());
+    }
+
+    /**
+     * Sorts the elements with the given comparator, or in natural order if it is
+     * null, locking all nodes.
+     */
+    @Override
+    public void sort(Comparator<? super E> comp) {
+        ArrayList<Node> locked = lockAll();
+        try {
+            Object[] items = new Object[size.get()];
+            int count = 0;
+            for (Node n = head.next; n != tail; n = n.next) {
+                System.arraycopy(n.data, 0, items, count, n.count);
+                count += n.count;
+            }
+            Arrays.sort(items, 0, count, (Comparator) comp);
+            repack(items, count);
+        } finally {
+            unlockAll(locked);
+        }
+    }
+
+    /**
+     * @return the number of elements that can be stored in each node
+     */
+    public int nodeSize() {
+        return nodeSize;
+    }
+
+    /**
+     * Locks every node from head to tail, in list order.
+     *
+     * @return the locked nodes
+     */
+    private ArrayList<Node> lockAll() {
+        ArrayList<Node> locked = new ArrayList<>();
+        Node n = head;
+        while (true) {
+            n.lock.lock();
+            locked.add(n);
+            if (n == tail)
+                return locked;
+            n = n.next;
+        }
+    }
+
+    private void unlockAll(ArrayList<Node> locked) {
+        for (Node n : locked) {
+            n.lock.unlock();
+        }
+    }
+
+    /**
+     * Replaces every node with new full ones holding the given items. Every node
+     * must be locked. The new chain is built first and linked to tail last, since
+     * add(E) may lock tail.previous without going through head.
+     *
+     * @param items elements in list order
+     * @param count number of elements
+     */
+    private void repack(Object[] items, int count) {
+        for (Node n = head.next; n != tail; n = n.next) {
+            n.removed = true;
+        }
+
+        Node last = head;
+        Node first = tail;
+        for (int i = 0; i < count; i += nodeSize) {
+            Node n = new Node();
+            n.count = Math.min(nodeSize, count - i);
+            System.arraycopy(items, i, n.data, 0, n.count);
+            if (last == head) {
+                first = n;
+            } else {
+                last.next = n;
+                n.previous = last;
+            }
+            last = n;
+        }
+        last.next = tail;
+        first.previous = head;
+        head.next = first;
+        size.set(count);
+        tail.previous = last;
+    }
+
+    /**
+     * Walks from head hand over hand to the node holding the given position.
+     * Returns with the node and its predecessor locked; the node is tail if the
+     * position is at or past the end of the list.
+     *
+     * @param pos position to look for
+     * @return the locked pair and the offset of pos in the node
+     */
+    private Cursor seek(int pos) {
+        Node prev = head;
+        prev.lock.lock();
+        Node node = prev.next;
+        node.lock.lock();
+        while (node != tail && pos >= node.count) {
+            pos -= node.count;
+            prev.lock.unlock();
+            prev = node;
+            node = node.next;
+            node.lock.lock();
+        }
+        return new Cursor(prev, node, pos);
+    }
+
+    /**
+     * Removes the element at an offset of a node, then restores the half-full
+     * rule. The node and its predecessor must be locked.
+     *
+     * @return the removed element
+     */
+    private E removeFrom(Node prev, Node node, int offset) {
+        E value = element(node, offset);
+
+        // Simple case: Remove the last element of the list
+        if (node.next == tail && node.count == 1) {
+            unlink(prev, node);
+        } else {
+            removeAt(node, offset);
+            adjustAfterRemoval(node);
+        }
+        forget(value);
+        size.decrementAndGet();
+        return value;
+    }
+
+    /**
+     * Restores the half-full rule after a removal from a node. The successor is
+     * locked while elements are borrowed from it or it is merged away. The node
+     * must be locked.
+     *
+     * @param node node from which an item was removed
+     */
+    private void adjustAfterRemoval(Node node) {
+        if (node.count >= nodeSize / 2)
+            return;
+        Node nextNode = node.next;
+        if (nextNode == tail)
+            return;
+
+        nextNode.lock.lock();
+        try {
+            if (nextNode.count > nodeSize / 2) {
+                node.data[node.count++] = nextNode.data[0];
+                removeAt(nextNode, 0);
+            } else {
+                System.arraycopy(nextNode.data, 0, node.data, node.count, nextNode.count);
+                node.count += nextNode.count;
+                unlink(node, nextNode);
+            }
+        } finally {
+            nextNode.lock.unlock();
+        }
+    }
+
+    /**
+     * Links a new node after a locked node.
+     */
+    private void linkAfter(Node predecessor, Node node) {
+        Node successor = predecessor.next;
+        node.previous = predecessor;
+        node.next = successor;
+        successor.previous = node;
+        predecessor.next = node;
+    }
+
+    /**
+     * Unlinks a node. Both it and its predecessor must be locked.
+     */
+    private void unlink(Node predecessor, Node node) {
+        predecessor.next = node.next;
+        node.next.previous = predecessor;
+        node.removed = true;
+    }
+
+    private void insertAt(Node node, int offset, E item) {
+        System.arraycopy(node.data, offset, node.data, offset + 1, node.count - offset);
+        node.data[offset] = item;
+        node.count++;
+    }
+
+    private void removeAt(Node node, int offset) {
+        System.arraycopy(node.data, offset + 1, node.data, offset, node.count - offset - 1);
+        node.data[--node.count] = null;
+    }
+
+    /**
+     * Lowers the count of an element that has been taken out of the list.
+     */
+    private void forget(E item) {
+        membership.computeIfPresent(item, (key, count) -> count == 1 ? null : count - 1);
+    }
+
+    private E element(Node node, int offset) {
+        return (E) node.data[offset];
+    }
+
+    /**
+     * Node type for this list, with its own lock.
+     */
+    private class Node {
+        /**
+         * Guards data, count, next and the previous link of the successor.
+         */
+        final ReentrantLock lock = new ReentrantLock();
+
+        /**
+         * Array of actual data elements.
+         */
+        final Object[] data = new Object[nodeSize];
+
+        /**
+         * Number of elements in this node.
+         */
+        int count;
+
+        /**
+         * Link to next node.
+         */
+        Node next;
+
+        /**
+         * Link to previous node. Volatile because add(E) reads tail.previous
+         * before locking it.
+         */
+        volatile Node previous;
+
+        /**
+         * Set once the node has been unlinked, so that a thread which read it as
+         * tail.previous before locking it knows to look again.
+         */
+        boolean removed;
+    }
+
+    /**
+     * A node holding a position, locked together with its predecessor.
+     */
+    private class Cursor {
+        final Node prev;
+        final Node node;
+        final int offset;
+
+        Cursor(Node prev, Node node, int offset) {
+            this.prev = prev;
+            this.node = node;
+            this.offset = offset;
+        }
+
+        void release() {
+            node.lock.unlock();
+            prev.lock.unlock();
+        }
+    }
+}
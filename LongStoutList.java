@@ -0,0 +1,410 @@
+package edu.iastate.cs2280.hw3;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/**
+ * Variant of StoutList that stores long values in long[] node arrays, so that
+ * adding, reading, comparing and sorting elements never boxes them. Nodes follow
+ * the same rules as StoutList: a full node is split in half on insertion, and
+ * after a removal a node that drops below half full borrows from or merges with
+ * its successor, so each node (except possibly the last one) is at least half
+ * full.
+ */
+public class LongStoutList {
+    /**
+     * Default number of elements that may be stored in each node.
+     */
+    private static final int DEFAULT_NODESIZE = 4;
+
+    /**
+     * Number of elements that can be stored in each node.
+     */
+    private final int nodeSize;
+
+    /**
+     * Dummy node for head.
+     */
+    private final Node head;
+
+    /**
+     * Dummy node for tail.
+     */
+    private final Node tail;
+
+    /**
+     * Number of elements in the list.
+     */
+    private int size;
+
+    /**
+     * Constructs an empty list with the default node size.
+     */
+    public LongStoutList() {
+        this(DEFAULT_NODESIZE);
+    }
+
+    /**
+     * Constructs an empty list with the given node size.
+     *
+     * @param nodeSize number of elements that may be stored in each node, must be
+     *                 an even number
+     */
+    public LongStoutList(int nodeSize) {
+        if (nodeSize <= 0 || nodeSize % 2 != 0)
+            throw new IllegalArgumentException();
+
+        this.nodeSize = nodeSize;
+        head = new Node();
+        tail = new Node();
+        head.next = tail;
+        tail.previous = head;
+    }
+
+    /**
+     * @return the size of elements in the list
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return true if the list holds no elements
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Appends the item to the list.
+     *
+     * @param item The item to append to the list.
+     * @return True if the item was successfully appended, false if the item is
+     *         already present in the list.
+     */
+    public boolean add(long item) {
+        if (contains(item)) {
+            return false;
+        }
+
+        Node n = tail.previous;
+        if (n == head || n.count == nodeSize) {
+            n = new Node();
+            linkAfter(tail.previous, n);
+        }
+        n.addItem(item);
+        size++;
+        return true;
+    }
+
+    /**
+     * Inserts the item at the given position. Unlike add(long), does not check for
+     * duplicates.
+     *
+     * @param pos  position at which to insert
+     * @param item item to insert
+     */
+    public void add(int pos, long item) {
+        if (pos < 0 || pos > size) {
+            throw new IndexOutOfBoundsException("Position " + pos + " is out of bounds.");
+        }
+
+        // If the list is empty, add item at the end
+        if (head.next == tail) {
+            Node n = new Node();
+            linkAfter(head, n);
+            n.addItem(item);
+            size++;
+            return;
+        }
+
+        // Locate the node holding the position, or the tail when pos == size
+        Node temp = head.next;
+        int offset = pos;
+        while (temp != tail && offset >= temp.count) {
+            offset -= temp.count;
+            temp = temp.next;
+        }
+
+        // Case when the insertion point is at the start of a node
+        if (offset == 0) {
+            if (temp.previous != head && temp.previous.count < nodeSize) {
+                temp.previous.addItem(item);
+                size++;
+                return;
+            } else if (temp == tail) {
+                Node n = new Node();
+                linkAfter(tail.previous, n);
+                n.addItem(item);
+                size++;
+                return;
+            }
+        }
+
+        if (temp.count == nodeSize) {
+            // The node is full and needs to be split
+            Node newNode = new Node();
+            int mid = nodeSize / 2;
+            System.arraycopy(temp.data, mid, newNode.data, 0, mid);
+            newNode.count = mid;
+            temp.count = mid;
+            linkAfter(temp, newNode);
+            if (offset > mid) {
+                temp = newNode;
+                offset -= mid;
+            }
+        }
+        temp.addItem(offset, item);
+        size++;
+    }
+
+    /**
+     * @param pos position of the element
+     * @return the element at the given position
+     */
+    public long get(int pos) {
+        checkIndex(pos);
+        Node temp = head.next;
+        while (pos >= temp.count) {
+            pos -= temp.count;
+            temp = temp.next;
+        }
+        return temp.data[pos];
+    }
+
+    /**
+     * Replaces the element at the given position.
+     *
+     * @param pos  position of the element
+     * @param item new value
+     * @return the value previously at the position
+     */
+    public long set(int pos, long item) {
+        checkIndex(pos);
+        Node temp = head.next;
+        while (pos >= temp.count) {
+            pos -= temp.count;
+            temp = temp.next;
+        }
+        long old = temp.data[pos];
+        temp.data[pos] = item;
+        return old;
+    }
+
+    /**
+     * Removes the element at the given position.
+     *
+     * @param pos position of the element
+     * @return the removed element
+     */
+    public long remove(int pos) {
+        checkIndex(pos);
+        Node temp = head.next;
+        while (pos >= temp.count) {
+            pos -= temp.count;
+            temp = temp.next;
+        }
+        long value = temp.data[pos];
+
+        if (temp.next == tail && temp.count == 1) {
+            unlinkNode(temp);
+        } else {
+            temp.removeItem(pos);
+            adjustAfterRemoval(temp);
+        }
+        size--;
+        return value;
+    }
+
+    /**
+     * @param item value to look for
+     * @return whether the value is present in the list
+     */
+    public boolean contains(long item) {
+        return indexOf(item) >= 0;
+    }
+
+    /**
+     * @param item value to look for
+     * @return position of the first occurrence of the value, or -1
+     */
+    public int indexOf(long item) {
+        int pos = 0;
+        for (Node temp = head.next; temp != tail; temp = temp.next) {
+            long[] data = temp.data;
+            for (int i = 0; i < temp.count; i++) {
+                if (data[i] == item)
+                    return pos + i;
+            }
+            pos += temp.count;
+        }
+        return -1;
+    }
+
+    /**
+     * Performs the action for each element in list order.
+     *
+     * @param action action to perform
+     */
+    public void forEach(LongConsumer action) {
+        for (Node temp = head.next; temp != tail; temp = temp.next) {
+            long[] data = temp.data;
+            for (int i = 0; i < temp.count; i++) {
+                action.accept(data[i]);
+            }
+        }
+    }
+
+    /**
+     * @return a new array holding the elements in list order
+     */
+    public long[] toArray() {
+        long[] arr = new long[size];
+        int pos = 0;
+        for (Node temp = head.next; temp != tail; temp = temp.next) {
+            System.arraycopy(temp.data, 0, arr, pos, temp.count);
+            pos += temp.count;
+        }
+        return arr;
+    }
+
+    /**
+     * Sort all elements in the NON-DECREASING order. After sorting, all nodes but
+     * (possibly) the last one are full of elements.
+     */
+    public void sort() {
+        long[] arr = toArray();
+        Arrays.sort(arr);
+        load(arr, false);
+    }
+
+    /**
+     * Sort all elements in the NON-INCREASING order. After sorting, all nodes but
+     * (possibly) the last one are full of elements.
+     */
+    public void sortReverse() {
+        long[] arr = toArray();
+        Arrays.sort(arr);
+        load(arr, true);
+    }
+
+    /**
+     * Removes every element from the list.
+     */
+    public void clear() {
+        head.next = tail;
+        tail.previous = head;
+        size = 0;
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(toArray());
+    }
+
+    /**
+     * Replaces the nodes with new ones packed full from the given array.
+     *
+     * @param arr     elements of the list
+     * @param reverse whether to store the array back to front
+     */
+    private void load(long[] arr, boolean reverse) {
+        Node last = head;
+        for (int pos = 0; pos < arr.length; pos += nodeSize) {
+            Node n = new Node();
+            n.count = Math.min(nodeSize, arr.length - pos);
+            if (reverse) {
+                for (int i = 0; i < n.count; i++) {
+                    n.data[i] = arr[arr.length - 1 - pos - i];
+                }
+            } else {
+                System.arraycopy(arr, pos, n.data, 0, n.count);
+            }
+            n.previous = last;
+            last.next = n;
+            last = n;
+        }
+        last.next = tail;
+        tail.previous = last;
+    }
+
+    private void checkIndex(int pos) {
+        if (pos < 0 || pos >= size)
+            throw new IndexOutOfBoundsException("Position " + pos + " is out of bounds.");
+    }
+
+    private void linkAfter(Node predecessor, Node node) {
+        Node successor = predecessor.next;
+        node.previous = predecessor;
+        node.next = successor;
+        predecessor.next = node;
+        successor.previous = node;
+    }
+
+    private void unlinkNode(Node node) {
+        node.previous.next = node.next;
+        node.next.previous = node.previous;
+    }
+
+    /**
+     * Restores the half-full rule after an item has been removed from node, by
+     * borrowing the first element of the next node or merging the next node into
+     * this one.
+     *
+     * @param node node from which an item was removed
+     */
+    private void adjustAfterRemoval(Node node) {
+        if (node.count >= nodeSize / 2)
+            return;
+
+        Node nextNode = node.next;
+        if (nextNode == tail)
+            return;
+
+        if (nextNode.count > nodeSize / 2) {
+            node.addItem(nextNode.data[0]);
+            nextNode.removeItem(0);
+        } else {
+            System.arraycopy(nextNode.data, 0, node.data, node.count, nextNode.count);
+            node.count += nextNode.count;
+            unlinkNode(nextNode);
+        }
+    }
+
+    /**
+     * Node type for this list. Each node holds a maximum of nodeSize elements in an
+     * array.
+     */
+    private class Node {
+        /**
+         * Array of actual data elements.
+         */
+        final long[] data = new long[nodeSize];
+
+        /**
+         * Links to the neighbouring nodes.
+         */
+        Node next;
+        Node previous;
+
+        /**
+         * Number of elements in this node.
+         */
+        int count;
+
+        void addItem(long item) {
+            data[count++] = item;
+        }
+
+        void addItem(int offset, long item) {
+            System.arraycopy(data, offset, data, offset + 1, count - offset);
+            data[offset] = item;
+            count++;
+        }
+
+        void removeItem(int offset) {
+            System.arraycopy(data, offset + 1, data, offset, count - offset - 1);
+            count--;
+        }
+    }
+}
@@ -0,0 +1,609 @@
+package edu.iastate.cs2280.hw3;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.AbstractSequentialList;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.ListIterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Variant of StoutList for fixed-width elements that keeps the node payloads in
+ * direct memory, outside the Java heap. Elements are encoded by a StoutListCodec
+ * into arenas of direct ByteBuffers, each holding the payload of a fixed number
+ * of nodes. As in SlabStoutList, a node is an int index, and only the small
+ * count[], next[] and previous[] arrays live on the heap, so a list of millions
+ * of elements adds almost nothing for the garbage collector to trace.
+ *
+ * Splits, borrows and merges move encoded bytes between node slots without
+ * decoding them. The list follows the same rules as StoutList: add(E) rejects
+ * duplicates, a full node is split in half on insertion, and after a removal a
+ * node that drops below half full borrows from or merges with its successor.
+ */
+public class OffHeapStoutList<E extends Comparable<? super E>> extends AbstractSequentialList<E> {
+    /**
+     * Default number of elements that may be stored in each node.
+     */
+    private static final int DEFAULT_NODESIZE = 4;
+
+    /**
+     * Target size in bytes of one arena.
+     */
+    private static final int ARENA_BYTES = 1 << 20;
+
+    /**
+     * Number of node slots allocated up front.
+     */
+    private static final int INITIAL_NODES = 16;
+
+    /**
+     * Index of the dummy head node.
+     */
+    private static final int HEAD = 0;
+
+    /**
+     * Index of the dummy tail node.
+     */
+    private static final int TAIL = 1;
+
+    /**
+     * Marks the end of the free list.
+     */
+    private static final int NONE = -1;
+
+    /**
+     * Number of elements that can be stored in each node.
+     */
+    private final int nodeSize;
+
+    /**
+     * Codec for the elements and the number of bytes each one takes.
+     */
+    private final StoutListCodec<E> codec;
+    private final int width;
+
+    /**
+     * Number of nodes whose payload fits in one arena.
+     */
+    private final int arenaNodes;
+
+    /**
+     * Direct buffers holding the node payloads. Node n lives in arena
+     * n / arenaNodes; arenas are added as nodes are handed out and never moved.
+     */
+    private ByteBuffer[] arenas = new ByteBuffer[1];
+
+    /**
+     * Scratch buffer holding the encoding of the element being looked up.
+     */
+    private final ByteBuffer probe;
+
+    /**
+     * Number of elements in each node.
+     */
+    private int[] count;
+
+    /**
+     * Links to the next and previous node of each node. The free list is chained
+     * through next[].
+     */
+    private int[] next;
+    private int[] previous;
+
+    /**
+     * Number of node indices handed out so far, including the dummies.
+     */
+    private int nodesUsed;
+
+    /**
+     * First node of the free list, or NONE.
+     */
+    private int free = NONE;
+
+    /**
+     * Number of elements in the list.
+     */
+    private int size;
+
+    /**
+     * Constructs an empty list with the default node size.
+     *
+     * @param codec codec for the elements
+     */
+    public OffHeapStoutList(StoutListCodec<E> codec) {
+        this(codec, DEFAULT_NODESIZE);
+    }
+
+    /**
+     * Constructs an empty list with the given node size.
+     *
+     * @param codec    codec for the elements
+     * @param nodeSize number of elements that may be stored in each node, must be
+     *                 an even number
+     */
+    public OffHeapStoutList(StoutListCodec<E> codec, int nodeSize) {
+        if (nodeSize <= 0 || nodeSize % 2 != 0 || codec.width() <= 0)
+            throw new IllegalArgumentException();
+
+        this.nodeSize = nodeSize;
+        this.codec = codec;
+        this.width = codec.width();
+        this.arenaNodes = Math.max(1, ARENA_BYTES / (nodeSize * width));
+        this.probe = ByteBuffer.allocate(width).order(ByteOrder.nativeOrder());
+        count = new int[INITIAL_NODES];
+        next = new int[INITIAL_NODES];
+        previous = new int[INITIAL_NODES];
+
+        // dummy nodes
+        nodesUsed = 2;
+        next[HEAD] = TAIL;
+        previous[TAIL] = HEAD;
+    }
+
+    /**
+     * @return the size of elements in the list
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Appends the item to the list.
+     *
+     * @param item The item to append to the list.
+     * @return True if the item was successfully appended, false if the item is
+     *         already present in the list.
+     */
+    @Override
+    public boolean add(E item) {
+        if (item == null)
+            throw new NullPointerException();
+        if (contains(item))
+            return false;
+
+        int n = previous[TAIL];
+        if (n == HEAD || count[n] == nodeSize) {
+            n = allocateNode();
+            linkAfter(previous[TAIL], n);
+        }
+        write(n, count[n]++, item);
+        size++;
+        modCount++;
+        return true;
+    }
+
+    @Override
+    public void add(int pos, E item) {
+        if (item == null)
+            throw new NullPointerException();
+        if (pos < 0 || pos > size)
+            throw new IndexOutOfBoundsException("Position " + pos + " is out of bounds.");
+
+        // Locate the node holding the position, or the tail when pos == size
+        int n = next[HEAD];
+        int offset = pos;
+        while (n != TAIL && offset >= count[n]) {
+            offset -= count[n];
+            n = next[n];
+        }
+
+        if (offset == 0) {
+            int before = previous[n];
+            if (before != HEAD && count[before] < nodeSize) {
+                // Room at the end of the previous node
+                n = before;
+                offset = count[before];
+            } else if (n == TAIL) {
+                n = allocateNode();
+                linkAfter(before, n);
+            }
+        }
+
+        if (count[n] == nodeSize) {
+            // The node is full and needs to be split
+            int newNode = allocateNode();
+            int mid = nodeSize / 2;
+            move(n, mid, newNode, 0, mid);
+            count[newNode] = mid;
+            count[n] = mid;
+            linkAfter(n, newNode);
+            if (offset > mid) {
+                n = newNode;
+                offset -= mid;
+            }
+        }
+
+        move(n, offset, n, offset + 1, count[n] - offset);
+        write(n, offset, item);
+        count[n]++;
+        size++;
+        modCount++;
+    }
+
+    @Override
+    public E get(int pos) {
+        checkIndex(pos);
+        int n = next[HEAD];
+        while (pos >= count[n]) {
+            pos -= count[n];
+            n = next[n];
+        }
+        return read(n, pos);
+    }
+
+    @Override
+    public E set(int pos, E item) {
+        if (item == null)
+            throw new NullPointerException();
+        checkIndex(pos);
+        int n = next[HEAD];
+        while (pos >= count[n]) {
+            pos -= count[n];
+            n = next[n];
+        }
+        E old = read(n, pos);
+        write(n, pos, item);
+        return old;
+    }
+
+    @Override
+    public E remove(int pos) {
+        checkIndex(pos);
+        int n = next[HEAD];
+        while (pos >= count[n]) {
+            pos -= count[n];
+            n = next[n];
+        }
+        E value = read(n, pos);
+        removeAt(n, pos);
+        return value;
+    }
+
+    @Override
+    public boolean contains(Object item) {
+        return indexOf(item) >= 0;
+    }
+
+    /**
+     * Finds the element by comparing encoded bytes, so no element is decoded
+     * during the scan.
+     */
+    @Override
+    public int indexOf(Object item) {
+        if (item == null || size == 0)
+            return -1;
+        try {
+            codec.write(probe, 0, (E) item);
+        } catch (ClassCastException e) {
+            return -1; // not an element type the codec can encode
+        }
+
+        int pos = 0;
+        for (int n = next[HEAD]; n != TAIL; n = next[n]) {
+            ByteBuffer arena = arenas[n / arenaNodes];
+            int start = byteIndex(n, 0);
+            for (int i = 0; i < count[n]; i++) {
+                if (matchesProbe(arena, start + i * width))
+                    return pos + i;
+            }
+            pos += count[n];
+        }
+        return -1;
+    }
+
+    @Override
+    public void clear() {
+        arenas = new ByteBuffer[1];
+        nodesUsed = 2;
+        free = NONE;
+        next[HEAD] = TAIL;
+        previous[TAIL] = HEAD;
+        size = 0;
+        modCount++;
+    }
+
+    /**
+     * Sort all elements in the NON-DECREASING order. The elements are decoded into
+     * an array, sorted, and encoded back into the existing nodes so that all nodes
+     * but (possibly) the last one are full.
+     */
+    public void sort() {
+        E[] arr = (E[]) new Comparable[size];
+        int pos = 0;
+        for (int n = next[HEAD]; n != TAIL; n = next[n]) {
+            for (int i = 0; i < count[n]; i++) {
+                arr[pos++] = read(n, i);
+            }
+        }
+        Arrays.sort(arr);
+
+        // Walk the chain again, filling each node to capacity
+        int n = next[HEAD];
+        for (pos = 0; pos < arr.length; pos += nodeSize) {
+            count[n] = Math.min(nodeSize, arr.length - pos);
+            for (int i = 0; i < count[n]; i++) {
+                write(n, i, arr[pos + i]);
+            }
+            n = next[n];
+        }
+        // Nodes left over after packing are released
+        while (n != TAIL) {
+            int following = next[n];
+            unlinkNode(n);
+            n = following;
+        }
+        modCount++;
+    }
+
+    @Override
+    public ListIterator<E> listIterator(int index) {
+        return new OffHeapListIterator(index);
+    }
+
+    /**
+     * Removes the element at the given offset of node n and restores the half-full
+     * rule.
+     */
+    private void removeAt(int n, int offset) {
+        if (next[n] == TAIL && count[n] == 1) {
+            unlinkNode(n);
+        } else {
+            move(n, offset + 1, n, offset, count[n] - offset - 1);
+            count[n]--;
+            adjustAfterRemoval(n);
+        }
+        size--;
+        modCount++;
+    }
+
+    /**
+     * Borrows the first element of the next node, or merges the next node into
+     * this one, if n has dropped below half full.
+     */
+    private void adjustAfterRemoval(int n) {
+        if (count[n] >= nodeSize / 2)
+            return;
+
+        int nextNode = next[n];
+        if (nextNode == TAIL)
+            return;
+
+        if (count[nextNode] > nodeSize / 2) {
+            move(nextNode, 0, n, count[n]++, 1);
+            move(nextNode, 1, nextNode, 0, --count[nextNode]);
+        } else {
+            move(nextNode, 0, n, count[n], count[nextNode]);
+            count[n] += count[nextNode];
+            unlinkNode(nextNode);
+        }
+    }
+
+    /**
+     * Takes a node index from the free list, or from the end of the arrays. The
+     * heap arrays are doubled when they run out, and a new arena is allocated when
+     * the index falls past the last one.
+     */
+    private int allocateNode() {
+        int n;
+        if (free != NONE) {
+            n = free;
+            free = next[n];
+        } else {
+            if (nodesUsed == count.length) {
+                int capacity = count.length * 2;
+                count = Arrays.copyOf(count, capacity);
+                next = Arrays.copyOf(next, capacity);
+                previous = Arrays.copyOf(previous, capacity);
+            }
+            n = nodesUsed++;
+            int arena = n / arenaNodes;
+            if (arena == arenas.length)
+                arenas = Arrays.copyOf(arenas, arenas.length * 2);
+            if (arenas[arena] == null) {
+                arenas[arena] = ByteBuffer.allocateDirect(arenaNodes * nodeSize * width)
+                        .order(ByteOrder.nativeOrder());
+            }
+        }
+        count[n] = 0;
+        return n;
+    }
+
+    private void linkAfter(int predecessor, int n) {
+        int successor = next[predecessor];
+        previous[n] = predecessor;
+        next[n] = successor;
+        next[predecessor] = n;
+        previous[successor] = n;
+    }
+
+    /**
+     * Unlinks node n and puts its index on the free list. Its payload bytes are
+     * left in place and overwritten when the node is reused.
+     */
+    private void unlinkNode(int n) {
+        next[previous[n]] = next[n];
+        previous[next[n]] = previous[n];
+        count[n] = 0;
+        next[n] = free;
+        free = n;
+    }
+
+    /**
+     * @return the byte index of the given slot of node n within its arena
+     */
+    private int byteIndex(int n, int offset) {
+        return ((n % arenaNodes) * nodeSize + offset) * width;
+    }
+
+    private E read(int n, int offset) {
+        return codec.read(arenas[n / arenaNodes], byteIndex(n, offset));
+    }
+
+    private void write(int n, int offset, E item) {
+        codec.write(arenas[n / arenaNodes], byteIndex(n, offset), item);
+    }
+
+    /**
+     * Copies the encoded bytes of length elements from one node slot to another.
+     * The ranges may overlap when both are in the same node.
+     */
+    private void move(int srcNode, int srcOffset, int dstNode, int dstOffset, int length) {
+        if (length <= 0)
+            return;
+        arenas[dstNode / arenaNodes].put(byteIndex(dstNode, dstOffset), arenas[srcNode / arenaNodes],
+                byteIndex(srcNode, srcOffset), length * width);
+    }
+
+    /**
+     * @return whether the element at the given byte index encodes like the probe
+     */
+    private boolean matchesProbe(ByteBuffer arena, int index) {
+        for (int b = 0; b < width; b++) {
+            if (arena.get(index + b) != probe.get(b))
+                return false;
+        }
+        return true;
+    }
+
+    private void checkIndex(int pos) {
+        if (pos < 0 || pos >= size)
+            throw new IndexOutOfBoundsException("Position " + pos + " is out of bounds.");
+    }
+
+    /**
+     * List iterator whose cursor is a node index and an offset within it.
+     */
+    private class OffHeapListIterator implements ListIterator<E> {
+        /**
+         * Node holding the next element, or TAIL, and the offset within it.
+         */
+        int node;
+        int offset;
+
+        /**
+         * Position of the next element.
+         */
+        int currPosition;
+
+        /**
+         * Node and offset of the element returned by the last next() or
+         * previous(); lastNode is NONE after an edit.
+         */
+        int lastNode = NONE;
+        int lastOffset;
+
+        /**
+         * Whether the last move was next(), so the removed element lies before the
+         * cursor.
+         */
+        boolean lastWasNext;
+
+        int expectedModCount;
+
+        OffHeapListIterator(int pos) {
+            if (pos < 0 || pos > size)
+                throw new IndexOutOfBoundsException("Position " + pos + " is out of bounds.");
+            moveTo(pos);
+        }
+
+        private void moveTo(int pos) {
+            node = next[HEAD];
+            offset = pos;
+            while (node != TAIL && offset >= count[node]) {
+                offset -= count[node];
+                node = next[node];
+            }
+            currPosition = pos;
+            expectedModCount = modCount;
+        }
+
+        private void checkForComodification() {
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return currPosition < size;
+        }
+
+        @Override
+        public E next() {
+            checkForComodification();
+            if (!hasNext())
+                throw new NoSuchElementException();
+            if (offset == count[node]) {
+                node = next[node];
+                offset = 0;
+            }
+            lastNode = node;
+            lastOffset = offset++;
+            lastWasNext = true;
+            currPosition++;
+            return read(lastNode, lastOffset);
+        }
+
+        @Override
+        public boolean hasPrevious() {
+            return currPosition > 0;
+        }
+
+        @Override
+        public E previous() {
+            checkForComodification();
+            if (!hasPrevious())
+                throw new NoSuchElementException();
+            if (offset == 0) {
+                node = previous[node];
+                offset = count[node];
+            }
+            lastNode = node;
+            lastOffset = --offset;
+            lastWasNext = false;
+            currPosition--;
+            return read(lastNode, lastOffset);
+        }
+
+        @Override
+        public int nextIndex() {
+            return currPosition;
+        }
+
+        @Override
+        public int previousIndex() {
+            return currPosition - 1;
+        }
+
+        @Override
+        public void remove() {
+            if (lastNode == NONE)
+                throw new IllegalStateException();
+            checkForComodification();
+            if (lastWasNext)
+                currPosition--;
+            removeAt(lastNode, lastOffset);
+            moveTo(currPosition);
+            lastNode = NONE;
+        }
+
+        @Override
+        public void set(E item) {
+            if (item == null)
+                throw new NullPointerException();
+            if (lastNode == NONE)
+                throw new IllegalStateException();
+            checkForComodification();
+            write(lastNode, lastOffset, item);
+        }
+
+        @Override
+        public void add(E item) {
+            checkForComodification();
+            OffHeapStoutList.this.add(currPosition, item);
+            moveTo(currPosition + 1);
+            lastNode = NONE;
+        }
+    }
+}
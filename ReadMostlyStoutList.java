@@ -0,0 +1,262 @@
+package edu.iastate.cs2280.hw3;
+
+import java.util.AbstractList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.ListIterator;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Thread-safe wrapper around a StoutList for lists that are read far more often
+ * than they are written. Reads run as optimistic reads of a StampedLock: they
+ * take no lock and write no shared field, and their result is only used if no
+ * write began in the meantime. Otherwise they are repeated under the read lock.
+ * Writes take the write lock.
+ *
+ * get() goes through StoutList.peek(), which leaves the finger alone, and the
+ * wrapped list keeps a membership index, so contains() and the duplicate check
+ * of add(E) do not scan. Iterators walk a snapshot of the wrapped list taken
+ * under the read lock in O(1), so they never throw
+ * ConcurrentModificationException and do not support modification. The first
+ * write after a snapshot gives the wrapped list its own nodes again, which costs
+ * time proportional to the number of nodes rather than the number of elements.
+ */
+public class ReadMostlyStoutList<E extends Comparable<? super E>> extends AbstractList<E> {
+    /**
+     * Default number of elements that may be stored in each node.
+     */
+    private static final int DEFAULT_NODESIZE = 4;
+
+    /**
+     * The wrapped list, only touched while holding a stamp.
+     */
+    private final StoutList<E> list;
+
+    private final StampedLock lock = new StampedLock();
+
+    /**
+     * Constructs an empty list with the default node size.
+     */
+    public ReadMostlyStoutList() {
+        this(DEFAULT_NODESIZE);
+    }
+
+    /**
+     * Constructs an empty list with the given node size.
+     *
+     * @param nodeSize number of elements that may be stored in each node, must be
+     *                 an even number
+     */
+    public ReadMostlyStoutList(int nodeSize) {
+        list = new StoutList<>(nodeSize, true);
+    }
+
+    @Override
+    public int size() {
+        return read(list::size);
+    }
+
+    @Override
+    public E get(int pos) {
+        return read(() -> list.peek(pos));
+    }
+
+    @Override
+    public boolean contains(Object item) {
+        return read(() -> list.contains(item));
+    }
+
+    @Override
+    public int indexOf(Object item) {
+        return read(() -> list.contains(item) ? list.firstIndex(item) : -1);
+    }
+
+    @Override
+    public int lastIndexOf(Object item) {
+        return read(() -> list.contains(item) ? list.lastIndex(item) : -1);
+    }
+
+    @Override
+    public Object[] toArray() {
+        return read(list::toArray);
+    }
+
+    /**
+     * Returns an iterator over a snapshot of the list; it does not support
+     * remove().
+     */
+    @Override
+    public Iterator<E> iterator() {
+        return listIterator(0);
+    }
+
+    /**
+     * Returns a list iterator over a snapshot of the list; it does not support
+     * modification.
+     */
+    @Override
+    public ListIterator<E> listIterator(int index) {
+        // snapshot() marks the wrapped list's nodes as shared, so it cannot run as
+        // an optimistic read
+        long stamp = lock.readLock();
+        try {
+            return list.snapshot().listIterator(index);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public boolean add(E item) {
+        return write(() -> list.add(item));
+    }
+
+    @Override
+    public void add(int pos, E item) {
+        write(() -> {
+            list.add(pos, item);
+            return null;
+        });
+    }
+
+    @Override
+    public E set(int pos, E item) {
+        long stamp = lock.writeLock();
+        try {
+            return list.set(pos, item);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public E remove(int pos) {
+        return write(() -> list.remove(pos));
+    }
+
+    @Override
+    public boolean remove(Object item) {
+        return write(() -> list.remove(item));
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends E> c) {
+        return write(() -> list.addAll(c));
+    }
+
+    @Override
+    public boolean addAll(int pos, Collection<? extends E> c) {
+        return write(() -> list.addAll(pos, c));
+    }
+
+    @Override
+    public boolean removeIf(Predicate<? super E> filter) {
+        return write(() -> list.removeIf(filter));
+    }
+
+    @Override
+    public boolean removeAll(Collection<?> c) {
+        return write(() -> list.removeAll(c));
+    }
+
+    @Override
+    public boolean retainAll(Collection<?> c) {
+        return write(() -> list.retainAll(c));
+    }
+
+    @Override
+    public void clear() {
+        write(() -> {
+            list.clear();
+            return null;
+        });
+    }
+
+    /**
+     * Removes the elements at positions from through to - 1 under the write lock.
+     * Backs subList(from, to).clear().
+     */
+    @Override
+    protected void removeRange(int from, int to) {
+        write(() -> {
+            list.removeRange(from, to);
+            return null;
+        });
+    }
+
+    /**
+     * Sort all elements in the NON-DECREASING order.
+     */
+    public void sort() {
+        sort(null);
+    }
+
+    /**
+     * Sort all elements in the NON-INCREASING order.
+     */
+    public void sortReverse() {
+        sort(Collections.reverseOrder());
+    }
+
+    /**
+     * Sorts the elements with the given comparator, or in natural order if it is
+     * null.
+     */
+    @Override
+    public void sort(Comparator<? super E> comp) {
+        write(() -> {
+            list.parallelSort(comp);
+            return null;
+        });
+    }
+
+    /**
+     * Runs a read first as an optimistic read, then under the read lock if a
+     * write began before it finished. An exception from the optimistic attempt
+     * may come from a torn read, so it is only thrown if the locked attempt throws
+     * it too.
+     *
+     * @param reader read to run; must not write any field
+     * @return result of the read
+     */
+    private <R> R read(Supplier<R> reader) {
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                R result = reader.get();
+                if (lock.validate(stamp))
+                    return result;
+            } catch (RuntimeException e) {
+                // retried under the read lock below
+            }
+        }
+
+        stamp = lock.readLock();
+        try {
+            return reader.get();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Runs a structural write under the write lock, and counts it as a
+     * modification for the views returned by subList().
+     *
+     * @param writer write to run
+     * @return result of the write
+     */
+    private <R> R write(Supplier<R> writer) {
+        long stamp = lock.writeLock();
+        try {
+            modCount++;
+            return writer.get();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+}
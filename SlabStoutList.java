@@ -0,0 +1,529 @@
+package edu.iastate.cs2280.hw3;
+
+import java.util.AbstractSequentialList;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.ListIterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Variant of StoutList that keeps its nodes in a few large arrays instead of one
+ * object per node. A node is an int index: its elements live in the slab at
+ * [index * nodeSize, index * nodeSize + count[index]), and count[], next[] and
+ * previous[] hold the rest of what a StoutList node would. Nodes unlinked by a
+ * merge go on a free list and are handed out again by later splits, so editing
+ * allocates nothing once the arrays have grown, and a scan touches contiguous
+ * memory.
+ *
+ * The list follows the same rules as StoutList: add(E) rejects duplicates, a full
+ * node is split in half on insertion, and after a removal a node that drops below
+ * half full borrows from or merges with its successor.
+ */
+public class SlabStoutList<E extends Comparable<? super E>> extends AbstractSequentialList<E> {
+    /**
+     * Default number of elements that may be stored in each node.
+     */
+    private static final int DEFAULT_NODESIZE = 4;
+
+    /**
+     * Number of node slots allocated up front.
+     */
+    private static final int INITIAL_NODES = 16;
+
+    /**
+     * Index of the dummy head node.
+     */
+    private static final int HEAD = 0;
+
+    /**
+     * Index of the dummy tail node.
+     */
+    private static final int TAIL = 1;
+
+    /**
+     * Marks the end of the free list.
+     */
+    private static final int NONE = -1;
+
+    /**
+     * Number of elements that can be stored in each node.
+     */
+    private final int nodeSize;
+
+    /**
+     * Elements of every node, nodeSize slots per node index.
+     */
+    private Object[] slab;
+
+    /**
+     * Number of elements in each node.
+     */
+    private int[] count;
+
+    /**
+     * Links to the next and previous node of each node. The free list is chained
+     * through next[].
+     */
+    private int[] next;
+    private int[] previous;
+
+    /**
+     * Number of node indices handed out so far, including the dummies.
+     */
+    private int nodesUsed;
+
+    /**
+     * First node of the free list, or NONE.
+     */
+    private int free = NONE;
+
+    /**
+     * Number of elements in the list.
+     */
+    private int size;
+
+    /**
+     * Constructs an empty list with the default node size.
+     */
+    public SlabStoutList() {
+        this(DEFAULT_NODESIZE);
+    }
+
+    /**
+     * Constructs an empty list with the given node size.
+     *
+     * @param nodeSize number of elements that may be stored in each node, must be
+     *                 an even number
+     */
+    public SlabStoutList(int nodeSize) {
+        if (nodeSize <= 0 || nodeSize % 2 != 0)
+            throw new IllegalArgumentException();
+
+        this.nodeSize = nodeSize;
+        slab = new Object[INITIAL_NODES * nodeSize];
+        count = new int[INITIAL_NODES];
+        next = new int[INITIAL_NODES];
+        previous = new int[INITIAL_NODES];
+
+        // dummy nodes
+        nodesUsed = 2;
+        next[HEAD] = TAIL;
+        previous[TAIL] = HEAD;
+    }
+
+    /**
+     * @return the size of elements in the list
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Appends the item to the list.
+     *
+     * @param item The item to append to the list.
+     * @return True if the item was successfully appended, false if the item is
+     *         already present in the list.
+     */
+    @Override
+    public boolean add(E item) {
+        if (item == null)
+            throw new NullPointerException();
+        if (contains(item))
+            return false;
+
+        int n = previous[TAIL];
+        if (n == HEAD || count[n] == nodeSize) {
+            n = allocateNode();
+            linkAfter(previous[TAIL], n);
+        }
+        slab[n * nodeSize + count[n]++] = item;
+        size++;
+        modCount++;
+        return true;
+    }
+
+    @Override
+    public void add(int pos, E item) {
+        if (item == null)
+            throw new NullPointerException();
+        if (pos < 0 || pos > size)
+            throw new IndexOutOfBoundsException("Position " + pos + " is out of bounds.");
+
+        // Locate the node holding the position, or the tail when pos == size
+        int n = next[HEAD];
+        int offset = pos;
+        while (n != TAIL && offset >= count[n]) {
+            offset -= count[n];
+            n = next[n];
+        }
+
+        if (offset == 0) {
+            int before = previous[n];
+            if (before != HEAD && count[before] < nodeSize) {
+                // Room at the end of the previous node
+                n = before;
+                offset = count[before];
+            } else if (n == TAIL) {
+                n = allocateNode();
+                linkAfter(before, n);
+            }
+        }
+
+        if (count[n] == nodeSize) {
+            // The node is full and needs to be split
+            int newNode = allocateNode();
+            int mid = nodeSize / 2;
+            System.arraycopy(slab, n * nodeSize + mid, slab, newNode * nodeSize, mid);
+            Arrays.fill(slab, n * nodeSize + mid, (n + 1) * nodeSize, null);
+            count[newNode] = mid;
+            count[n] = mid;
+            linkAfter(n, newNode);
+            if (offset > mid) {
+                n = newNode;
+                offset -= mid;
+            }
+        }
+
+        int start = n * nodeSize;
+        System.arraycopy(slab, start + offset, slab, start + offset + 1, count[n] - offset);
+        slab[start + offset] = item;
+        count[n]++;
+        size++;
+        modCount++;
+    }
+
+    @Override
+    public E get(int pos) {
+        checkIndex(pos);
+        int n = next[HEAD];
+        while (pos >= count[n]) {
+            pos -= count[n];
+            n = next[n];
+        }
+        return element(n * nodeSize + pos);
+    }
+
+    @Override
+    public E set(int pos, E item) {
+        if (item == null)
+            throw new NullPointerException();
+        checkIndex(pos);
+        int n = next[HEAD];
+        while (pos >= count[n]) {
+            pos -= count[n];
+            n = next[n];
+        }
+        E old = element(n * nodeSize + pos);
+        slab[n * nodeSize + pos] = item;
+        return old;
+    }
+
+    @Override
+    public E remove(int pos) {
+        checkIndex(pos);
+        int n = next[HEAD];
+        while (pos >= count[n]) {
+            pos -= count[n];
+            n = next[n];
+        }
+        E value = element(n * nodeSize + pos);
+        removeAt(n, pos);
+        return value;
+    }
+
+    @Override
+    public boolean contains(Object item) {
+        return indexOf(item) >= 0;
+    }
+
+    @Override
+    public int indexOf(Object item) {
+        if (item == null)
+            return -1;
+        int pos = 0;
+        for (int n = next[HEAD]; n != TAIL; n = next[n]) {
+            int start = n * nodeSize;
+            for (int i = 0; i < count[n]; i++) {
+                if (item.equals(slab[start + i]))
+                    return pos + i;
+            }
+            pos += count[n];
+        }
+        return -1;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(slab, null);
+        nodesUsed = 2;
+        free = NONE;
+        next[HEAD] = TAIL;
+        previous[TAIL] = HEAD;
+        size = 0;
+        modCount++;
+    }
+
+    /**
+     * Sort all elements in the NON-DECREASING order. The nodes are rewritten in
+     * place, so after sorting all nodes but (possibly) the last one are full.
+     */
+    public void sort() {
+        E[] arr = (E[]) new Comparable[size];
+        int pos = 0;
+        for (int n = next[HEAD]; n != TAIL; n = next[n]) {
+            System.arraycopy(slab, n * nodeSize, arr, pos, count[n]);
+            pos += count[n];
+        }
+        Arrays.sort(arr);
+
+        // Walk the chain again, filling each node to capacity
+        int n = next[HEAD];
+        for (pos = 0; pos < arr.length; pos += nodeSize) {
+            int fill = Math.min(nodeSize, arr.length - pos);
+            System.arraycopy(arr, pos, slab, n * nodeSize, fill);
+            Arrays.fill(slab, n * nodeSize + fill, (n + 1) * nodeSize, null);
+            count[n] = fill;
+            n = next[n];
+        }
+        // Nodes left over after packing are released
+        while (n != TAIL) {
+            int following = next[n];
+            unlinkNode(n);
+            n = following;
+        }
+        modCount++;
+    }
+
+    @Override
+    public ListIterator<E> listIterator(int index) {
+        return new SlabListIterator(index);
+    }
+
+    /**
+     * Removes the element at the given offset of node n and restores the half-full
+     * rule.
+     */
+    private void removeAt(int n, int offset) {
+        int start = n * nodeSize;
+        if (next[n] == TAIL && count[n] == 1) {
+            unlinkNode(n);
+        } else {
+            System.arraycopy(slab, start + offset + 1, slab, start + offset, count[n] - offset - 1);
+            slab[start + --count[n]] = null;
+            adjustAfterRemoval(n);
+        }
+        size--;
+        modCount++;
+    }
+
+    /**
+     * Borrows the first element of the next node, or merges the next node into
+     * this one, if n has dropped below half full.
+     */
+    private void adjustAfterRemoval(int n) {
+        if (count[n] >= nodeSize / 2)
+            return;
+
+        int nextNode = next[n];
+        if (nextNode == TAIL)
+            return;
+
+        int start = nextNode * nodeSize;
+        if (count[nextNode] > nodeSize / 2) {
+            slab[n * nodeSize + count[n]++] = slab[start];
+            System.arraycopy(slab, start + 1, slab, start, count[nextNode] - 1);
+            slab[start + --count[nextNode]] = null;
+        } else {
+            System.arraycopy(slab, start, slab, n * nodeSize + count[n], count[nextNode]);
+            count[n] += count[nextNode];
+            unlinkNode(nextNode);
+        }
+    }
+
+    /**
+     * Takes a node index from the free list, or from the end of the arrays, which
+     * are doubled when they run out.
+     */
+    private int allocateNode() {
+        int n;
+        if (free != NONE) {
+            n = free;
+            free = next[n];
+        } else {
+            if (nodesUsed == count.length) {
+                int capacity = count.length * 2;
+                slab = Arrays.copyOf(slab, capacity * nodeSize);
+                count = Arrays.copyOf(count, capacity);
+                next = Arrays.copyOf(next, capacity);
+                previous = Arrays.copyOf(previous, capacity);
+            }
+            n = nodesUsed++;
+        }
+        count[n] = 0;
+        return n;
+    }
+
+    private void linkAfter(int predecessor, int n) {
+        int successor = next[predecessor];
+        previous[n] = predecessor;
+        next[n] = successor;
+        next[predecessor] = n;
+        previous[successor] = n;
+    }
+
+    /**
+     * Unlinks node n, clears its slots so the elements can be collected, and puts
+     * the index on the free list.
+     */
+    private void unlinkNode(int n) {
+        next[previous[n]] = next[n];
+        previous[next[n]] = previous[n];
+        Arrays.fill(slab, n * nodeSize, (n + 1) * nodeSize, null);
+        count[n] = 0;
+        next[n] = free;
+        free = n;
+    }
+
+    private E element(int slot) {
+        return (E) slab[slot];
+    }
+
+    private void checkIndex(int pos) {
+        if (pos < 0 || pos >= size)
+            throw new IndexOutOfBoundsException("Position " + pos + " is out of bounds.");
+    }
+
+    /**
+     * List iterator whose cursor is a node index and an offset within it.
+     */
+    private class SlabListIterator implements ListIterator<E> {
+        /**
+         * Node holding the next element, or TAIL, and the offset within it.
+         */
+        int node;
+        int offset;
+
+        /**
+         * Position of the next element.
+         */
+        int currPosition;
+
+        /**
+         * Slot of the element returned by the last next() or previous(), or NONE
+         * after an edit.
+         */
+        int lastSlot = NONE;
+
+        /**
+         * Whether the last move was next(), so the removed element lies before the
+         * cursor.
+         */
+        boolean lastWasNext;
+
+        int expectedModCount;
+
+        SlabListIterator(int pos) {
+            if (pos < 0 || pos > size)
+                throw new IndexOutOfBoundsException("Position " + pos + " is out of bounds.");
+            moveTo(pos);
+        }
+
+        private void moveTo(int pos) {
+            node = next[HEAD];
+            offset = pos;
+            while (node != TAIL && offset >= count[node]) {
+                offset -= count[node];
+                node = next[node];
+            }
+            currPosition = pos;
+            expectedModCount = modCount;
+        }
+
+        private void checkForComodification() {
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return currPosition < size;
+        }
+
+        @Override
+        public E next() {
+            checkForComodification();
+            if (!hasNext())
+                throw new NoSuchElementException();
+            if (offset == count[node]) {
+                node = next[node];
+                offset = 0;
+            }
+            lastSlot = node * nodeSize + offset++;
+            lastWasNext = true;
+            currPosition++;
+            return element(lastSlot);
+        }
+
+        @Override
+        public boolean hasPrevious() {
+            return currPosition > 0;
+        }
+
+        @Override
+        public E previous() {
+            checkForComodification();
+            if (!hasPrevious())
+                throw new NoSuchElementException();
+            if (offset == 0) {
+                node = previous[node];
+                offset = count[node];
+            }
+            lastSlot = node * nodeSize + --offset;
+            lastWasNext = false;
+            currPosition--;
+            return element(lastSlot);
+        }
+
+        @Override
+        public int nextIndex() {
+            return currPosition;
+        }
+
+        @Override
+        public int previousIndex() {
+            return currPosition - 1;
+        }
+
+        @Override
+        public void remove() {
+            if (lastSlot == NONE)
+                throw new IllegalStateException();
+            checkForComodification();
+            if (lastWasNext)
+                currPosition--;
+            removeAt(lastSlot / nodeSize, lastSlot % nodeSize);
+            moveTo(currPosition);
+            lastSlot = NONE;
+        }
+
+        @Override
+        public void set(E item) {
+            if (item == null)
+                throw new NullPointerException();
+            if (lastSlot == NONE)
+                throw new IllegalStateException();
+            checkForComodification();
+            slab[lastSlot] = item;
+        }
+
+        @Override
+        public void add(E item) {
+            checkForComodification();
+            SlabStoutList.this.add(currPosition, item);
+            moveTo(currPosition + 1);
+            lastSlot = NONE;
+        }
+    }
+}
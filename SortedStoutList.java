@@ -0,0 +1,252 @@
+package edu.iastate.cs2280.hw3;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Spliterator;
+
+/**
+ * StoutList that keeps its elements in ascending natural order with no
+ * duplicates. add(E) searches the node directory for the insertion point by
+ * comparing the key with the first and last element of each node, then inserts
+ * through StoutList.add(int, E), so splitting and the half-full rule work as in
+ * StoutList. contains, indexOf, floor, ceiling and the range views use the same
+ * search and run in O(log n).
+ *
+ * Operations that would place an element at a chosen position, such as
+ * add(int, E) and set(int, E), throw UnsupportedOperationException.
+ */
+public class SortedStoutList<E extends Comparable<? super E>> extends StoutList<E> {
+    /**
+     * Constructs an empty list with the default node size.
+     */
+    public SortedStoutList() {
+        super();
+    }
+
+    /**
+     * Constructs an empty list with the given node size.
+     *
+     * @param nodeSize number of elements that may be stored in each node, must be
+     *                 an even number
+     */
+    public SortedStoutList(int nodeSize) {
+        super(nodeSize);
+    }
+
+    /**
+     * Inserts the item at its place in the sort order.
+     *
+     * @param item The item to insert.
+     * @return True if the item was inserted, false if an equal item is already
+     *         present in the list.
+     */
+    @Override
+    public boolean add(E item) {
+        if (item == null) {
+            throw new NullPointerException();
+        }
+
+        int pos = binarySearch(item);
+        if (pos >= 0) {
+            return false;
+        }
+        super.add(-pos - 1, item);
+        return true;
+    }
+
+    /**
+     * Inserts each item at its place in the sort order.
+     *
+     * @param c items to insert
+     * @return true if the list changed
+     */
+    @Override
+    public boolean addAll(Collection<? extends E> c) {
+        boolean changed = false;
+        for (E item : c) {
+            changed |= add(item);
+        }
+        return changed;
+    }
+
+    @Override
+    public void add(int pos, E item) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean addAll(int pos, Collection<? extends E> c) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public E set(int pos, E item) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean contains(Object item) {
+        return indexOf(item) >= 0;
+    }
+
+    @Override
+    public int indexOf(Object item) {
+        if (item == null || isEmpty()) {
+            return -1;
+        }
+        try {
+            int pos = binarySearch((E) item);
+            return pos >= 0 ? pos : -1;
+        } catch (ClassCastException e) {
+            return -1; // not comparable with the elements
+        }
+    }
+
+    @Override
+    public int lastIndexOf(Object item) {
+        return indexOf(item); // elements are distinct
+    }
+
+    /**
+     * @param key element to compare with
+     * @return the greatest element less than or equal to the key, or null
+     */
+    public E floor(E key) {
+        int pos = binarySearch(key);
+        return elementAt(pos >= 0 ? pos : -pos - 2);
+    }
+
+    /**
+     * @param key element to compare with
+     * @return the least element greater than or equal to the key, or null
+     */
+    public E ceiling(E key) {
+        int pos = binarySearch(key);
+        return elementAt(pos >= 0 ? pos : -pos - 1);
+    }
+
+    /**
+     * @param key element to compare with
+     * @return the greatest element strictly less than the key, or null
+     */
+    public E lower(E key) {
+        int pos = binarySearch(key);
+        return elementAt(pos >= 0 ? pos - 1 : -pos - 2);
+    }
+
+    /**
+     * @param key element to compare with
+     * @return the least element strictly greater than the key, or null
+     */
+    public E higher(E key) {
+        int pos = binarySearch(key);
+        return elementAt(pos >= 0 ? pos + 1 : -pos - 1);
+    }
+
+    /**
+     * Returns a view of the elements from fromKey (inclusive) to toKey
+     * (exclusive). Both ends are located in O(log n); the view is backed by this
+     * list as subList() is.
+     *
+     * @param fromKey low end of the range, inclusive
+     * @param toKey   high end of the range, exclusive
+     * @return view of the elements in the range
+     */
+    public List<E> range(E fromKey, E toKey) {
+        if (fromKey.compareTo(toKey) > 0) {
+            throw new IllegalArgumentException("fromKey > toKey");
+        }
+        return subList(insertionPoint(fromKey), insertionPoint(toKey));
+    }
+
+    /**
+     * @param toKey high end of the range, exclusive
+     * @return view of the elements less than toKey
+     */
+    public List<E> headList(E toKey) {
+        return subList(0, insertionPoint(toKey));
+    }
+
+    /**
+     * @param fromKey low end of the range, inclusive
+     * @return view of the elements greater than or equal to fromKey
+     */
+    public List<E> tailList(E fromKey) {
+        return subList(insertionPoint(fromKey), size());
+    }
+
+    /**
+     * The list is always sorted, so there is nothing to do.
+     */
+    @Override
+    public void sort() {
+    }
+
+    @Override
+    public void sortReverse() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Only the natural ordering, which the list already has, is supported.
+     */
+    @Override
+    public void parallelSort(Comparator<? super E> comp) {
+        if (comp != null) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /**
+     * Merges another sorted list into this one. Duplicates are always dropped, so
+     * the distinct flag is ignored.
+     *
+     * @param other    list sorted in ascending order
+     * @param distinct ignored
+     */
+    @Override
+    public void mergeSorted(StoutList<E> other, boolean distinct) {
+        super.mergeSorted(other, true);
+    }
+
+    /**
+     * Moves every element of another sorted list to the end of this one. Every
+     * element of the other list must be greater than the last element of this one.
+     *
+     * @param other list sorted in ascending order
+     * @throws IllegalArgumentException if the lists overlap
+     */
+    @Override
+    public void concat(StoutList<E> other) {
+        if (!isEmpty() && !other.isEmpty() && get(size() - 1).compareTo(other.get(0)) >= 0) {
+            throw new IllegalArgumentException("Lists overlap");
+        }
+        super.concat(other);
+    }
+
+    @Override
+    StoutList<E> newEmptyList() {
+        return new SortedStoutList<>(nodeSize());
+    }
+
+    @Override
+    int spliteratorCharacteristics() {
+        return super.spliteratorCharacteristics() | Spliterator.DISTINCT | Spliterator.SORTED;
+    }
+
+    /**
+     * @return position of the first element not less than the key
+     */
+    private int insertionPoint(E key) {
+        int pos = binarySearch(key);
+        return pos >= 0 ? pos : -pos - 1;
+    }
+
+    /**
+     * @return the element at the position, or null if it is out of range
+     */
+    private E elementAt(int pos) {
+        return pos >= 0 && pos < size() ? get(pos) : null;
+    }
+}
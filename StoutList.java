@@ -1,12 +1,25 @@
 package edu.iastate.cs2280.hw3;
 
+import java.lang.reflect.Array;
+import java.util.AbstractList;
 import java.util.AbstractSequentialList;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.ConcurrentModificationException;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.ListIterator;
 import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 /**
  * 
@@ -24,9 +37,40 @@ public class StoutList<E extends Comparable<? super E>> extends AbstractSequenti
     private static final int DEFAULT_NODESIZE = 4;
 
     /**
-     * Number of elements that can be stored in each node.
+     * Maximum number of unlinked nodes kept for reuse.
      */
-    private final int nodeSize;
+    private static final int NODE_POOL_CAPACITY = 64;
+
+    /**
+     * Bounds and rounding for the node size chosen in adaptive mode.
+     */
+    private static final int MIN_ADAPTIVE_NODESIZE = 4;
+    private static final int MAX_ADAPTIVE_NODESIZE = 4096;
+
+    /**
+     * Estimated cost of moving from one node to the next during a scan, in units
+     * of shifting one element within a node during an insert or remove.
+     */
+    private static final int NODE_HOP_COST = 64;
+
+    /**
+     * Largest batch for which addAll(Collection) without a membership index checks
+     * each item with its own scan, which compares elements with equals() and is
+     * cheaper than hashing every element of the list.
+     */
+    private static final int SMALL_BATCH = 4;
+
+    /**
+     * Number of nodes get() and set() will walk from the finger before falling
+     * back to a search of the node directory.
+     */
+    private static final int FINGER_REACH = 8;
+
+    /**
+     * Number of elements that can be stored in each node. Changes only when the
+     * list is re-chunked.
+     */
+    private int nodeSize;
 
     /**
      * Dummy node for head. It should be private but set to public here only for
@@ -45,6 +89,74 @@ public class StoutList<E extends Comparable<? super E>> extends AbstractSequenti
      */
     private int size;
 
+    /**
+     * Hash index over the elements of the list, or null when the list was created
+     * without one and membership is answered by scanning the nodes.
+     */
+    private MembershipIndex membership;
+
+    /**
+     * Root of the node directory, a treap over the linked nodes in list order where
+     * each node also records the number of elements stored in its subtree. Lets
+     * find() descend to a position in logarithmic time instead of walking the
+     * chain. Null when the list is empty.
+     */
+    private Node root;
+
+    /**
+     * Unlinked nodes kept for reuse by later splits, chained through their next
+     * links, and the number of them.
+     */
+    private Node pool;
+    private int pooled;
+
+    /**
+     * Number of nodes taken from the pool and number allocated because it was
+     * empty.
+     */
+    private long poolHits;
+    private long poolMisses;
+
+    /**
+     * Whether the node size is re-chosen from the observed workload.
+     */
+    private boolean adaptive;
+
+    /**
+     * Workload seen since the node size was last chosen: positional inserts and
+     * removals, and elements read by iterators, spliterators and scans. Both are
+     * only counted in adaptive mode, so edits and read-only traversals do not pay
+     * for them otherwise.
+     */
+    private long positionalEdits;
+    private long scannedElements;
+
+    /**
+     * Node last reached by get() or set(), the position of its first element, and
+     * the modCount at that time. The finger is stale once modCount has moved on.
+     */
+    private Node finger;
+    private int fingerStart;
+    private int fingerModCount;
+
+    /**
+     * Set on a list returned by snapshot(), which rejects every modification.
+     */
+    private boolean frozen;
+
+    /**
+     * Set while a snapshot shares this list's nodes. The next modification first
+     * gives the list node objects of its own, see unshare().
+     */
+    private boolean spineShared;
+
+    /**
+     * Bumped by unshare(). Iterators, spliterators and forEach() hold on to
+     * nodes, so when it has moved on they find their node again by position. The
+     * elements are unchanged, so this is not a structural modification.
+     */
+    private int spineEpoch;
+
     /**
      * Constructs an empty list with the default node size.
      */
@@ -59,9 +171,26 @@ public class StoutList<E extends Comparable<? super E>> extends AbstractSequenti
      *                 an even number
      */
     public StoutList(int nodeSize) {
+        this(nodeSize, false);
+    }
+
+    /**
+     * Constructs an empty list with the given node size, optionally keeping a hash
+     * index of its elements. With the index, contains() and the duplicate check in
+     * add(E) take expected constant time instead of a scan over every node, at the
+     * cost of one table slot per distinct element.
+     *
+     * @param nodeSize        number of elements that may be stored in each node,
+     *                        must be an even number
+     * @param membershipIndex whether to keep a hash index of the elements
+     */
+    public StoutList(int nodeSize, boolean membershipIndex) {
         if (nodeSize <= 0 || nodeSize % 2 != 0)
             throw new IllegalArgumentException();
 
+        if (membershipIndex)
+            membership = new MembershipIndex();
+
         // dummy nodes
         head = new Node();
 
@@ -87,6 +216,7 @@ public class StoutList<E extends Comparable<? super E>> extends AbstractSequenti
         this.tail = tail;
         this.nodeSize = nodeSize;
         this.size = size;
+        rebuildDirectory();
     }
 
     /**
@@ -107,6 +237,7 @@ public class StoutList<E extends Comparable<? super E>> extends AbstractSequenti
      */
     @Override
     public boolean add(E item) {
+        beforeWrite();
         if (item == null) {
             throw new NullPointerException();
         }
@@ -115,42 +246,46 @@ public class StoutList<E extends Comparable<? super E>> extends AbstractSequenti
             return false;
         }
 
-        Node n;
-        if (size == 0) {
-            n = new Node();
-            head.next = n;
-            n.previous = head;
-            n.next = tail;
-            tail.previous = n;
+        append(item);
+        return true;
+    }
+
+    /**
+     * Appends the item to the last node, or to a new node if the last one is full.
+     * Does not check for duplicates.
+     *
+     * @param item The item to append to the list.
+     */
+    private void append(E item) {
+        Node n = tail.previous;
+        if (n != head && n.count < nodeSize) {
             n.addItem(item);
         } else {
-            n = tail.previous;
-            if (n.count < nodeSize) {
-                n.addItem(item);
-            } else {
-                Node newNode = new Node();
-                newNode.addItem(item);
-                newNode.next = tail;
-                newNode.previous = n;
-                n.next = newNode;
-                tail.previous = newNode;
-            }
+            Node newNode = newNode();
+            newNode.addItem(item);
+            linkAfter(n, newNode);
         }
 
-        size++;
-        return true;
+        itemAdded(item);
     }
 
 
     @Override
     public void add(int pos, E item) {
+        beforeWrite();
+        if (item == null) {
+            throw new NullPointerException();
+        }
+
         if (pos < 0 || pos > size) {
             throw new IndexOutOfBoundsException();
         }
 
+        positionalEdit();
+
         // If the list is empty, add item at the end
         if (head.next == tail) {
-            add(item);
+            append(item);
             return;
         }
 
@@ -162,37 +297,28 @@ public class StoutList<E extends Comparable<? super E>> extends AbstractSequenti
         if (offset == 0) {
             if (temp.previous != head && temp.previous.count < nodeSize) {
                 temp.previous.addItem(item);
+                itemAdded(item);
+                return;
             } else if (temp == tail) {
-                add(item);
-            } else {
-                temp.addItem(offset, item);
+                append(item);
+                return;
             }
-            size++;
-            return;
         }
 
         // Regular case for insertion within a node with enough space
         if (temp.count < nodeSize) {
             temp.addItem(offset, item);
-            size++;
+            itemAdded(item);
             return;
         }
 
         // Case where the node is full and needs to be split
-        Node newNode = new Node();
+        Node newNode = newNode();
         int mid = nodeSize / 2;
-        for (int count = 0; count < mid; count++) {
-            newNode.addItem(temp.data[mid]);
-            temp.removeItem(mid);
-        }
+        temp.transferTail(mid, newNode);
 
         // Re-linking the new node into the list
-        newNode.next = temp.next;
-        if (newNode.next != null) {
-            newNode.next.previous = newNode;
-        }
-        temp.next = newNode;
-        newNode.previous = temp;
+        linkAfter(temp, newNode);
 
         // Decide which node to add based on the offset
         if (offset <= mid) {
@@ -200,200 +326,1481 @@ public class StoutList<E extends Comparable<? super E>> extends AbstractSequenti
         } else {
             newNode.addItem(offset - mid, item);
         }
-        size++;
+        itemAdded(item);
     }
 
-
     /**
+     * Appends every item of the collection that is not already present, as add(E)
+     * would, but checks for duplicates in one batch and packs the accepted items
+     * straight into the last node and new full nodes. Only the incoming items are
+     * hashed; without a membership index, the list is scanned once to drop those
+     * already present (or once per item for a small batch), so the call costs
+     * O(n + k) time and O(k) extra space.
      *
-     * Checks if there is a duplicate
-     *
-     * @param item
-     * @return whether the argument is present or not
-     *
-     *
-     * */
+     * @param c items to append
+     * @return true if the list changed
+     */
+    @Override
+    public boolean addAll(Collection<? extends E> c) {
+        beforeWrite();
+        Object[] items = c.toArray();
+        for (Object item : items) {
+            if (item == null)
+                throw new NullPointerException();
+        }
+
+        // Drops duplicates within the batch and keeps the order of first occurrence
+        LinkedHashSet<Object> fresh = new LinkedHashSet<>(Arrays.asList(items));
+        if (membership != null) {
+            fresh.removeIf(membership::contains);
+        } else if (fresh.size() <= SMALL_BATCH) {
+            fresh.removeIf(this::contains);
+        } else {
+            // One pass over the list instead of a scan per item
+            for (Node n = head.next; n != tail && !fresh.isEmpty(); n = n.next) {
+                for (int i = 0; i < n.count; i++) {
+                    fresh.remove(n.data[i]);
+                }
+            }
+        }
 
-    public boolean contains(E item) {
-        if(size < 1)
+        int count = fresh.size();
+        if (count == 0)
             return false;
-        Node temp = head.next;
-        while(temp != tail) {
-            for(int i=0;i<temp.count;i++) {
-                if(temp.data[i].equals(item))
-                    return true;
-                temp = temp.next;
+        items = fresh.toArray();
+        appendAll(items, count);
+        size += count;
+        modCount++;
+        if (membership != null) {
+            for (int i = 0; i < count; i++) {
+                membership.add(items[i]);
             }
         }
-        return false;
+        return true;
     }
 
+    /**
+     * Inserts every item of the collection at the given position, without checking
+     * for duplicates, as add(int, E) would. The node holding the position is split
+     * once: its elements after the position are set aside, the items and then
+     * those elements are packed into it and into new full nodes, and only the last
+     * new node may need to take elements from its predecessor to be half full.
+     *
+     * @param pos position at which to insert the first item
+     * @param c   items to insert
+     * @return true if the list changed
+     */
     @Override
-    public E remove(int pos) {
+    public boolean addAll(int pos, Collection<? extends E> c) {
+        beforeWrite();
         if (pos < 0 || pos > size) {
             throw new IndexOutOfBoundsException("Position " + pos + " is out of bounds.");
         }
 
-        NodeInfo nodeInfo = find(pos);
-        Node tempNode = nodeInfo.node;
-        int offset = nodeInfo.offset;
-        E value = tempNode.data[offset];  // Store the value to return
+        Object[] items = c.toArray();
+        for (Object item : items) {
+            if (item == null)
+                throw new NullPointerException();
+        }
+        if (items.length == 0)
+            return false;
 
-        // Simple case: Remove the last element of the list
-        if (tempNode.next == tail && tempNode.count == 1) {
-            unlinkNode(tempNode);
+        positionalEdit();
+        if (pos == size) {
+            appendAll(items, items.length);
         } else {
-            tempNode.removeItem(offset);
-            adjustAfterRemoval(tempNode);
+            insertAll(find(pos), items);
         }
 
-        size--;
-        return value;
+        size += items.length;
+        modCount++;
+        if (membership != null) {
+            for (Object item : items) {
+                membership.add(item);
+            }
+        }
+        return true;
     }
 
-
     /**
-     * Unlinks a given node from the list  by adjusting its previous and next nodes to point to each other,
-     * effectively bypassing the specified node.
+     * Packs items[0..count) into the free slots of the last node and then into new
+     * full nodes linked at the end of the list. Does not update the size.
      *
-     * @param node node to be unlinked from the list.
+     * @param items items to append
+     * @param count number of items to take from the array
      */
-    private void unlinkNode(Node node) {
-        Node predecessor = node.previous;
-        Node successor = node.next;
-        predecessor.next = successor;
-        successor.previous = predecessor;
+    private void appendAll(Object[] items, int count) {
+        int i = 0;
+        Node last = tail.previous;
+        if (last != head && last.count < nodeSize) {
+            i = Math.min(nodeSize - last.count, count);
+            last.own();
+            System.arraycopy(items, 0, last.data, last.count, i);
+            last.count += i;
+            last.reweigh(i);
+        }
+        while (i < count) {
+            Node n = newNode();
+            n.count = Math.min(nodeSize, count - i);
+            System.arraycopy(items, i, n.data, 0, n.count);
+            linkAfter(tail.previous, n);
+            i += n.count;
+        }
     }
 
-
     /**
-     * Adjusts the list after an item has been removed from a node and ensures
-     * that the list remains balanced according to the rules
+     * Inserts the items before the element at the given node and offset, splitting
+     * that node once. Does not update the size.
      *
-     * @param node node from which an item was removed
+     * @param nodeInfo node and offset of the element that will follow the items
+     * @param items    items to insert
      */
-    private void adjustAfterRemoval(Node node) {
-        // No adjustment needed if the node after removal still has more than half of its capacity filled
-        if (node.count >= nodeSize / 2) return;
+    private void insertAll(NodeInfo nodeInfo, Object[] items) {
+        Node node = nodeInfo.node;
+        int offset = nodeInfo.offset;
 
-        Node nextNode = node.next;
-        if (nextNode == tail) return;  // Nothing to do if the next node is the tail
+        // Set aside the elements after the insertion point
+        Object[] suffix = Arrays.copyOfRange(node.data, offset, node.count);
+        node.own();
+        Arrays.fill(node.data, offset, node.count, null);
+        node.reweigh(offset - node.count);
+        node.count = offset;
+
+        Node last = node;
+        int i = 0;
+        int total = items.length + suffix.length;
+        while (i < total) {
+            if (last.count == nodeSize) {
+                Node n = newNode();
+                linkAfter(last, n);
+                last = n;
+            }
+            int fill = Math.min(nodeSize - last.count, total - i);
+            if (i < items.length) {
+                fill = Math.min(fill, items.length - i);
+                System.arraycopy(items, i, last.data, last.count, fill);
+            } else {
+                System.arraycopy(suffix, i - items.length, last.data, last.count, fill);
+            }
+            last.count += fill;
+            last.reweigh(fill);
+            i += fill;
+        }
 
-        if (nextNode.count > nodeSize / 2) {
-            // Perform a mini-merge: Transfer one element from nextNode to node
-            node.addItem(nextNode.data[0]);
-            nextNode.removeItem(0);
-        } else {
-            // Perform a full merge: Transfer all elements from nextNode to node and remove nextNode
-            mergeNodes(node, nextNode);
+        // The last new node follows a full one, so topping it up keeps both half full
+        if (last != node && last.next != tail && last.count < nodeSize / 2) {
+            Node full = last.previous;
+            int moved = nodeSize / 2 - last.count;
+            full.own();
+            System.arraycopy(last.data, 0, last.data, moved, last.count);
+            System.arraycopy(full.data, full.count - moved, last.data, 0, moved);
+            Arrays.fill(full.data, full.count - moved, full.count, null);
+            full.count -= moved;
+            full.reweigh(-moved);
+            last.count += moved;
+            last.reweigh(moved);
         }
     }
 
     /**
-     * Merges two adjacent nodes into one, transfering all elements from the second
-     * node (nextNode) to the first node (node) and then unlinks the second node from the list.
-     *
-     *
-     * @param node     node into which elements will be merged
-     * @param nextNode the node whose elements are to be transferred to node.
+     * Returns the element at the given position. Starts from the node reached by
+     * the previous get() or set() when that node is near, so walking the list by
+     * index takes amortized constant time per call.
      *
+     * @param pos position of the element
+     * @return the element at the given position
      */
-    private void mergeNodes(Node node, Node nextNode) {
-        for (int i = 0; i < nextNode.count; i++) {
-            node.addItem(nextNode.data[i]);  // Transfer all elements
+    @Override
+    public E get(int pos) {
+        if (pos < 0 || pos >= size) {
+            throw new IndexOutOfBoundsException("Position " + pos + " is out of bounds.");
         }
-        unlinkNode(nextNode);  // Remove nextNode from the list
-    }
 
+        if (frozen)
+            return peek(pos); // shared by readers, so leave the finger alone
+
+        Node node = seek(pos);
+        return node.data[pos - fingerStart];
+    }
 
     /**
-     * Sort all elements in the stout list in the NON-DECREASING order. You may do
-     * the following. Traverse the list and copy its elements into an array,
-     * deleting every visited node along the way. Then, sort the array by calling
-     * the insertionSort() method. (Note that sorting efficiency is not a concern
-     * for this project.) Finally, copy all elements from the array back to the
-     * stout list, creating new nodes for storage. After sorting, all nodes but
-     * (possibly) the last one must be full of elements.
+     * Returns the element at the given position like get(), but through the node
+     * directory alone, without moving the finger or touching any other field, so
+     * that readers running at the same time write nothing. A reader racing a
+     * writer may see a torn directory, so the descent gives up with a
+     * ConcurrentModificationException once it has taken more steps than the list
+     * could have nodes.
      *
-     * Comparator<E> must have been implemented for calling insertionSort().
+     * @param pos position of the element
+     * @return the element at pos
      */
-    public void sort() {
-        E[] sortDataList = (E[]) new Comparable[size];
-        int pos = 0;
-        Node temp = head.next;
-        while (temp != tail) {
-            for (int i = 0; i < temp.count; i++) {
-                sortDataList[pos] = temp.data[i];
-                pos++;
-            }
-            temp = temp.next;
+    E peek(int pos) {
+        if (pos < 0 || pos >= size) {
+            throw new IndexOutOfBoundsException("Position " + pos + " is out of bounds.");
         }
-        head.next = tail;
-        tail.previous = head;
-        Arrays.sort(sortDataList);
-        size = 0;
-        for (int i = 0; i < sortDataList.length; i++) {
-            add(sortDataList[i]);
+
+        Node temp = root;
+        for (int steps = 0; temp != null && steps <= size; steps++) {
+            int leftWeight = weightOf(temp.left);
+            if (pos < leftWeight) {
+                temp = temp.left;
+            } else if (pos < leftWeight + temp.count) {
+                return temp.data[pos - leftWeight];
+            } else {
+                pos -= leftWeight + temp.count;
+                temp = temp.right;
+            }
         }
+        throw new ConcurrentModificationException();
     }
 
     /**
-     * Sort all elements in the stout list in the NON-INCREASING order. Call the
-     * bubbleSort() method. After sorting, all but (possibly) the last nodes must be
-     * filled with elements.
+     * Replaces the element at the given position, locating it the same way as
+     * get().
      *
-     * Comparable<? super E> must be implemented for calling bubbleSort().
+     * @param pos  position of the element
+     * @param item new element
+     * @return the element previously at the position
      */
-    public void sortReverse() {
-        E[] revSortDataList = (E[]) new Comparable[size];
+    @Override
+    public E set(int pos, E item) {
+        if (item == null) {
+            throw new NullPointerException();
+        }
+        if (pos < 0 || pos >= size) {
+            throw new IndexOutOfBoundsException("Position " + pos + " is out of bounds.");
+        }
 
-        int pos = 0;
-        Node tempNode = head.next;
-        while (tempNode != null) {
-            for (int i = 0; i < tempNode.count; i++) {
-                revSortDataList[pos] = tempNode.data[i];
-                pos++;
+        beforeWrite();
+        Node node = seek(pos);
+        E old = node.data[pos - fingerStart];
+        replaced(old, item);
+        node.own();
+        node.data[pos - fingerStart] = item;
+        return old;
+    }
+
+    /**
+     * Moves the finger to the node holding the given position, walking at most
+     * FINGER_REACH nodes from where it is and otherwise searching the directory.
+     * Precondition: 0 <= pos < size
+     *
+     * @param pos position of an element
+     * @return the node holding the position; fingerStart is its first position
+     */
+    private Node seek(int pos) {
+        Node node = finger;
+        int start = fingerStart;
+        if (node != null && fingerModCount == modCount) {
+            for (int hops = 0; hops <= FINGER_REACH; hops++) {
+                if (pos < start) {
+                    node = node.previous;
+                    start -= node.count;
+                } else if (pos >= start + node.count) {
+                    start += node.count;
+                    node = node.next;
+                } else {
+                    finger = node;
+                    fingerStart = start;
+                    return node;
+                }
             }
-            tempNode = tempNode.next;
-        }
-        head.next = tail;
-        tail.previous = head;
-        bubbleSort(revSortDataList);
-        size = 0;
-        for (int i = 0; i < revSortDataList.length; i++) {
-            add(revSortDataList[i]);
         }
 
+        NodeInfo nodeInfo = find(pos);
+        finger = nodeInfo.node;
+        fingerStart = pos - nodeInfo.offset;
+        fingerModCount = modCount;
+        return finger;
     }
 
-    @Override
-    public Iterator<E> iterator() {
-        return new StoutListIterator();
+    /**
+     * Updates the size, modification count and membership index after an item
+     * has been stored.
+     *
+     * @param item the item that was added
+     */
+    private void itemAdded(E item) {
+        size++;
+        modCount++;
+        if (membership != null)
+            membership.add(item);
+    }
+
+    /**
+     * Updates the size, modification count and membership index after an item
+     * has been taken out.
+     *
+     * @param item the item that was removed
+     */
+    private void itemRemoved(E item) {
+        size--;
+        modCount++;
+        if (membership != null)
+            membership.remove(item);
+    }
+
+    /**
+     * Updates the membership index after an item has been overwritten in place.
+     *
+     * @param oldItem the item that was replaced
+     * @param newItem the item that took its place
+     */
+    private void replaced(E oldItem, E newItem) {
+        if (membership != null) {
+            membership.remove(oldItem);
+            membership.add(newItem);
+        }
     }
 
+
+    /**
+     *
+     * Checks if there is a duplicate. Uses the membership index when the list has
+     * one, otherwise scans every node.
+     *
+     * @param item
+     * @return whether the argument is present or not
+     *
+     *
+     * */
     @Override
-    public ListIterator<E> listIterator() {
-        return new StoutListIterator();
+    public boolean contains(Object item) {
+        if (item == null || size < 1)
+            return false;
+        if (membership != null)
+            return membership.contains(item);
+        int pos = 0;
+        Node temp = head.next;
+        while(temp != tail) {
+            for(int i=0;i<temp.count;i++) {
+                if(temp.data[i].equals(item)) {
+                    recordScan(pos + i + 1);
+                    return true;
+                }
+            }
+            pos += temp.count;
+            temp = temp.next;
+        }
+        recordScan(size);
+        return false;
     }
 
+    /**
+     * Scans the nodes from the front for the item. With the membership index, an
+     * absent item is answered without a scan.
+     *
+     * @param item element to search for
+     * @return position of the first occurrence, or -1 if there is none
+     */
     @Override
-    public ListIterator<E> listIterator(int index) {
-        return new StoutListIterator(index);
+    public int indexOf(Object item) {
+        if (item == null || (membership != null && !membership.contains(item)))
+            return -1;
+        int pos = firstIndex(item);
+        recordScan(pos >= 0 ? pos + 1 : size);
+        return pos;
     }
 
     /**
-     * Returns a string representation of this list showing the internal structure
-     * of the nodes.
+     * Scans the nodes from the front for a non-null item, writing no field.
+     *
+     * @param item element to search for
+     * @return position of the first occurrence, or -1 if there is none
      */
-    public String toStringInternal() {
-        return toStringInternal(null);
+    int firstIndex(Object item) {
+        int pos = 0;
+        for (Node temp = head.next; temp != tail; temp = temp.next) {
+            E[] data = temp.data;
+            for (int i = 0, n = temp.count; i < n; i++) {
+                if (data[i].equals(item))
+                    return pos + i;
+            }
+            pos += temp.count;
+        }
+        return -1;
     }
 
     /**
-     * Returns a string representation of this list showing the internal structure
-     * of the nodes and the position of the iterator.
+     * Scans the nodes from the back, following the previous links from
+     * tail.previous.
      *
-     * @param iter an iterator for this list
+     * @param item element to search for
+     * @return position of the last occurrence, or -1 if there is none
+     */
+    @Override
+    public int lastIndexOf(Object item) {
+        if (item == null || (membership != null && !membership.contains(item)))
+            return -1;
+        int pos = lastIndex(item);
+        recordScan(pos >= 0 ? size - pos : size);
+        return pos;
+    }
+
+    /**
+     * Scans the nodes from the back for a non-null item, writing no field.
+     *
+     * @param item element to search for
+     * @return position of the last occurrence, or -1 if there is none
+     */
+    int lastIndex(Object item) {
+        int end = size;
+        for (Node temp = tail.previous; temp != head; temp = temp.previous) {
+            end -= temp.count;
+            E[] data = temp.data;
+            for (int i = temp.count - 1; i >= 0; i--) {
+                if (data[i].equals(item))
+                    return end + i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public E remove(int pos) {
+        beforeWrite();
+        if (pos < 0 || pos >= size) {
+            throw new IndexOutOfBoundsException("Position " + pos + " is out of bounds.");
+        }
+
+        positionalEdit();
+
+        NodeInfo nodeInfo = find(pos);
+        Node tempNode = nodeInfo.node;
+        int offset = nodeInfo.offset;
+        E value = tempNode.data[offset];  // Store the value to return
+
+        // Simple case: Remove the last element of the list
+        if (tempNode.next == tail && tempNode.count == 1) {
+            unlinkNode(tempNode);
+        } else {
+            tempNode.removeItem(offset);
+            adjustAfterRemoval(tempNode);
+        }
+
+        itemRemoved(value);
+        return value;
+    }
+
+
+    /**
+     * Links a new node into the list directly after the given node and enters it
+     * into the node directory.
+     *
+     * @param predecessor node after which to link, may be head
+     * @param node        node to be linked into the list
+     */
+    private void linkAfter(Node predecessor, Node node) {
+        Node successor = predecessor.next;
+        node.previous = predecessor;
+        node.next = successor;
+        predecessor.next = node;
+        successor.previous = node;
+        directoryInsertAfter(predecessor, node);
+    }
+
+    /**
+     * Removes the elements at positions from (inclusive) to to (exclusive). The
+     * first and last nodes of the range are trimmed, every node in between is
+     * unlinked whole, and the two trimmed nodes are rebalanced against each other.
+     *
+     * @param from position of the first element to remove
+     * @param to   position after the last element to remove
+     */
+    @Override
+    protected void removeRange(int from, int to) {
+        beforeWrite();
+        if (from < 0 || to > size || from > to) {
+            throw new IndexOutOfBoundsException("Range " + from + " to " + to + " is out of bounds.");
+        }
+        if (from == to)
+            return;
+
+        NodeInfo first = find(from);
+        NodeInfo last = find(to);
+        Node left = first.node;
+        Node right = last.node;
+
+        if (left == right) {
+            forgetElements(left, first.offset, last.offset);
+            left.own();
+            System.arraycopy(left.data, last.offset, left.data, first.offset, left.count - last.offset);
+            int removed = last.offset - first.offset;
+            Arrays.fill(left.data, left.count - removed, left.count, null);
+            left.count -= removed;
+            left.reweigh(-removed);
+            rebalance(left);
+        } else {
+            // Trim the first node after the range starts
+            forgetElements(left, first.offset, left.count);
+            left.own();
+            Arrays.fill(left.data, first.offset, left.count, null);
+            left.reweigh(first.offset - left.count);
+            left.count = first.offset;
+
+            // Drop the nodes wholly inside the range
+            for (Node n = left.next; n != right; ) {
+                Node following = n.next;
+                forgetElements(n, 0, n.count);
+                unlinkNode(n);
+                n = following;
+            }
+
+            // Trim the last node up to where the range ends
+            if (right != tail) {
+                forgetElements(right, 0, last.offset);
+                right.own();
+                System.arraycopy(right.data, last.offset, right.data, 0, right.count - last.offset);
+                Arrays.fill(right.data, right.count - last.offset, right.count, null);
+                right.count -= last.offset;
+                right.reweigh(-last.offset);
+                rebalance(right);
+            }
+            rebalance(left);
+        }
+
+        size -= to - from;
+        modCount++;
+    }
+
+    /**
+     * Removes every element that satisfies the filter. The filter is applied to
+     * all elements first, so an exception from it leaves the list unchanged. The
+     * survivors are then compacted toward the front in one pass, the emptied nodes
+     * are unlinked, and the node directory is rebuilt once.
+     *
+     * @param filter predicate returning true for elements to remove
+     * @return true if any element was removed
+     */
+    @Override
+    public boolean removeIf(Predicate<? super E> filter) {
+        beforeWrite();
+        if (filter == null)
+            throw new NullPointerException();
+
+        int expectedModCount = modCount;
+        BitSet doomed = new BitSet(size);
+        int pos = 0;
+        for (Node n = head.next; n != tail; n = n.next) {
+            for (int i = 0; i < n.count; i++, pos++) {
+                if (filter.test(n.data[i]))
+                    doomed.set(pos);
+            }
+        }
+        if (modCount != expectedModCount)
+            throw new ConcurrentModificationException();
+        if (doomed.isEmpty())
+            return false;
+
+        // Copy survivors down; the write cursor never passes the read cursor
+        Node write = head.next;
+        int w = 0;
+        pos = 0;
+        for (Node read = head.next; read != tail; read = read.next) {
+            for (int i = 0; i < read.count; i++, pos++) {
+                E item = read.data[i];
+                if (doomed.get(pos)) {
+                    if (membership != null)
+                        membership.remove(item);
+                    continue;
+                }
+                if (w == nodeSize) {
+                    write.count = nodeSize;
+                    write = write.next;
+                    w = 0;
+                }
+                write.own();
+                write.data[w++] = item;
+            }
+        }
+
+        // Every node before the write cursor is full; the rest are released
+        Node keep = w == 0 ? write.previous : write;
+        if (w > 0) {
+            Arrays.fill(write.data, w, nodeSize, null);
+            write.count = w;
+        }
+        for (Node n = keep.next; n != tail; ) {
+            Node following = n.next;
+            recycle(n);
+            n = following;
+        }
+        keep.next = tail;
+        tail.previous = keep;
+        rebuildDirectory();
+
+        size -= doomed.cardinality();
+        modCount++;
+        return true;
+    }
+
+    /**
+     * Keeps only the elements contained in the given collection, in one pass.
+     *
+     * @param c elements to keep
+     * @return true if any element was removed
+     */
+    @Override
+    public boolean retainAll(Collection<?> c) {
+        if (c == null)
+            throw new NullPointerException();
+        return removeIf(item -> !c.contains(item));
+    }
+
+    /**
+     * Removes every element contained in the given collection, in one pass.
+     *
+     * @param c elements to remove
+     * @return true if any element was removed
+     */
+    @Override
+    public boolean removeAll(Collection<?> c) {
+        if (c == null)
+            throw new NullPointerException();
+        return removeIf(c::contains);
+    }
+
+    /**
+     * Removes every element, returning the nodes to the pool.
+     */
+    @Override
+    public void clear() {
+        beforeWrite();
+        for (Node n = head.next; n != tail; ) {
+            Node following = n.next;
+            recycle(n);
+            n = following;
+        }
+        head.next = tail;
+        tail.previous = head;
+        root = null;
+        size = 0;
+        if (membership != null)
+            membership.clear();
+        modCount++;
+    }
+
+    /**
+     * Drops the elements at offsets from through to - 1 of a node from the
+     * membership index, before they are removed in bulk.
+     */
+    private void forgetElements(Node node, int from, int to) {
+        if (membership != null) {
+            for (int i = from; i < to; i++) {
+                membership.remove(node.data[i]);
+            }
+        }
+    }
+
+    /**
+     * Restores the half-full rule for a node that may hold any number of elements
+     * after a bulk removal, even none. While it is below half full it merges with
+     * its successor when both fit in one node, and otherwise borrows just enough
+     * elements from the successor, which keeps more than half. A node left empty
+     * at the end of the list is unlinked.
+     *
+     * @param node node whose count may be below nodeSize / 2
+     */
+    private void rebalance(Node node) {
+        while (node.count < nodeSize / 2 && node.next != tail) {
+            Node nextNode = node.next;
+            if (node.count + nextNode.count <= nodeSize) {
+                mergeNodes(node, nextNode);
+            } else {
+                int moved = nodeSize / 2 - node.count;
+                node.own();
+                nextNode.own();
+                System.arraycopy(nextNode.data, 0, node.data, node.count, moved);
+                node.count += moved;
+                node.reweigh(moved);
+                System.arraycopy(nextNode.data, moved, nextNode.data, 0, nextNode.count - moved);
+                Arrays.fill(nextNode.data, nextNode.count - moved, nextNode.count, null);
+                nextNode.count -= moved;
+                nextNode.reweigh(-moved);
+            }
+        }
+        if (node.count == 0)
+            unlinkNode(node);
+    }
+
+    /**
+     * Unlinks a given node from the list  by adjusting its previous and next nodes to point to each other,
+     * effectively bypassing the specified node.
+     *
+     * @param node node to be unlinked from the list.
+     */
+    private void unlinkNode(Node node) {
+        Node predecessor = node.previous;
+        Node successor = node.next;
+        predecessor.next = successor;
+        successor.previous = predecessor;
+        directoryRemove(node);
+        recycle(node);
+    }
+
+    /**
+     * Returns a cleared node from the pool, or a new node if the pool is empty.
+     *
+     * @return an empty, unlinked node
+     */
+    private Node newNode() {
+        Node node = pool;
+        if (node == null) {
+            poolMisses++;
+            return new Node();
+        }
+        pool = node.next;
+        pooled--;
+        poolHits++;
+        node.next = null;
+        return node;
+    }
+
+    /**
+     * Clears an unlinked node and keeps it for reuse by newNode(), unless the pool
+     * is already full. The pool is chained through the next links.
+     *
+     * @param node node that is no longer part of the list
+     */
+    private void recycle(Node node) {
+        // A shared array still belongs to a snapshot, so it must not be cleared
+        if (pooled == NODE_POOL_CAPACITY || node.shared)
+            return;
+        Arrays.fill(node.data, null);
+        node.count = 0;
+        node.weight = 0;
+        node.previous = null;
+        node.left = null;
+        node.right = null;
+        node.parent = null;
+        node.next = pool;
+        pool = node;
+        pooled++;
+    }
+
+    /**
+     * @return the number of nodes that were taken from the node pool
+     */
+    public long nodePoolHits() {
+        return poolHits;
+    }
+
+    /**
+     * @return the number of nodes that had to be allocated because the node pool
+     *         was empty
+     */
+    public long nodePoolMisses() {
+        return poolMisses;
+    }
+
+    /**
+     * @return the number of elements that can be stored in each node
+     */
+    public int nodeSize() {
+        return nodeSize;
+    }
+
+    /**
+     * Turns adaptive node sizing on or off. While it is on, the list counts
+     * positional inserts and removals against elements read by scans, and once
+     * that work adds up to twice the size of the list, the next positional edit
+     * calls adaptNodeSize(). Re-chunking costs O(n), so it is paid for by at least
+     * as much work on the list.
+     *
+     * @param adaptive whether to re-choose the node size from the workload
+     */
+    public void setAdaptiveNodeSize(boolean adaptive) {
+        this.adaptive = adaptive;
+        positionalEdits = 0;
+        scannedElements = 0;
+    }
+
+    /**
+     * Re-chooses the node size from the workload seen since the last call. Each
+     * positional edit shifts about nodeSize / 2 elements, and a scan pays one node
+     * hop per nodeSize elements, so the total cost is lowest near
+     * sqrt(NODE_HOP_COST * scans / edits). That value is rounded to the nearest
+     * power of two by ratio, since the cost grows with how many times too large
+     * or too small the node size is, and kept within
+     * [MIN_ADAPTIVE_NODESIZE, MAX_ADAPTIVE_NODESIZE]. The list is only
+     * re-chunked when it differs from the current size by a factor of two or more.
+     */
+    public void adaptNodeSize() {
+        double ideal = Math.sqrt((double) NODE_HOP_COST * (scannedElements + 1) / (positionalEdits + 1));
+        ideal = Math.min(ideal, MAX_ADAPTIVE_NODESIZE);
+        int target = Integer.highestOneBit(Math.max(1, (int) ideal));
+        // Round up when ideal lies above the geometric midpoint of target and 2 * target
+        if (ideal * ideal > 2.0 * target * target)
+            target *= 2;
+        target = Math.max(MIN_ADAPTIVE_NODESIZE, Math.min(MAX_ADAPTIVE_NODESIZE, target));
+
+        positionalEdits = 0;
+        scannedElements = 0;
+        if (target >= 2 * nodeSize || 2 * target <= nodeSize)
+            rechunk(target);
+    }
+
+    /**
+     * Repacks the list into full nodes of the given size. Every node but
+     * (possibly) the last one is full afterwards, so the half-full rule holds.
+     *
+     * @param newNodeSize number of elements that may be stored in each node, must
+     *                    be an even number
+     */
+    public void rechunk(int newNodeSize) {
+        beforeWrite();
+        if (newNodeSize <= 0 || newNodeSize % 2 != 0)
+            throw new IllegalArgumentException();
+
+        E[] arr = toSortArray();
+        head.next = tail;
+        tail.previous = head;
+        // Pooled nodes have arrays of the old size
+        pool = null;
+        pooled = 0;
+        nodeSize = newNodeSize;
+        load(arr);
+    }
+
+    /**
+     * Adds elements read by a scan to the workload, in adaptive mode only.
+     *
+     * @param elements number of elements read
+     */
+    private void recordScan(long elements) {
+        if (adaptive)
+            scannedElements += elements;
+    }
+
+    /**
+     * In adaptive mode, records a positional insert or removal, and re-chooses
+     * the node size once enough work has been seen to pay for re-chunking.
+     */
+    private void positionalEdit() {
+        if (!adaptive)
+            return;
+        positionalEdits++;
+        if (positionalEdits + scannedElements > 2L * size)
+            adaptNodeSize();
+    }
+
+
+    /**
+     * Adjusts the list after an item has been removed from a node and ensures
+     * that the list remains balanced according to the rules
+     *
+     * @param node node from which an item was removed
+     */
+    private void adjustAfterRemoval(Node node) {
+        // No adjustment needed if the node after removal still has more than half of its capacity filled
+        if (node.count >= nodeSize / 2) return;
+
+        Node nextNode = node.next;
+        if (nextNode == tail) return;  // Nothing to do if the next node is the tail
+
+        if (nextNode.count > nodeSize / 2) {
+            // Perform a mini-merge: Transfer one element from nextNode to node
+            node.addItem(nextNode.data[0]);
+            nextNode.removeItem(0);
+        } else {
+            // Perform a full merge: Transfer all elements from nextNode to node and remove nextNode
+            mergeNodes(node, nextNode);
+        }
+    }
+
+    /**
+     * Merges two adjacent nodes into one, transfering all elements from the second
+     * node (nextNode) to the first node (node) and then unlinks the second node from the list.
+     *
+     *
+     * @param node     node into which elements will be merged
+     * @param nextNode the node whose elements are to be transferred to node.
+     *
+     */
+    private void mergeNodes(Node node, Node nextNode) {
+        nextNode.transferTail(0, node);  // Transfer all elements
+        unlinkNode(nextNode);  // Remove nextNode from the list
+    }
+
+
+    /**
+     * Sort all elements in the stout list in the NON-DECREASING order. The
+     * elements are copied into an array one node at a time, sorted by
+     * parallelSort(), and packed back into full nodes. After sorting, all nodes but
+     * (possibly) the last one are full of elements.
+     */
+    public void sort() {
+        parallelSort(null);
+    }
+
+    /**
+     * Sort all elements in the stout list in the NON-INCREASING order, using the
+     * reverse of the natural ordering. After sorting, all but (possibly) the last
+     * nodes must be filled with elements.
+     */
+    public void sortReverse() {
+        parallelSort(Collections.reverseOrder());
+    }
+
+    /**
+     * Sorts the list by the given comparator on the common fork-join pool. The
+     * array of elements is cut into runs that are sorted by separate tasks and then
+     * merged pairwise in parallel, as Arrays.parallelSort() does; small lists fall
+     * back to a sequential sort. The result is packed back into full nodes.
+     *
+     * @param comp comparator to sort by, or null for the natural ordering
+     */
+    public void parallelSort(Comparator<? super E> comp) {
+        beforeWrite();
+        E[] sortDataList = toSortArray();
+        Arrays.parallelSort(sortDataList, comp);
+        load(sortDataList);
+    }
+
+    /**
+     * Copies the elements of the list into a new array in list order, one block
+     * per node.
+     *
+     * @return array holding every element of the list
+     */
+    private E[] toSortArray() {
+        E[] arr = (E[]) new Comparable[size];
+        copyInto(arr);
+        return arr;
+    }
+
+    /**
+     * Copies the elements into the front of the array, one node at a time.
+     *
+     * @param arr array of at least size elements
+     */
+    private void copyInto(Object[] arr) {
+        int pos = 0;
+        for (Node temp = head.next; temp != tail; temp = temp.next) {
+            System.arraycopy(temp.data, 0, arr, pos, temp.count);
+            pos += temp.count;
+        }
+    }
+
+    /**
+     * Merges another list into this one, dropping elements equal to one already
+     * kept as add(E) would. Both lists must be sorted in NON-DECREASING order.
+     *
+     * @param other sorted list whose elements are merged in; it is not changed
+     */
+    public void mergeSorted(StoutList<E> other) {
+        mergeSorted(other, true);
+    }
+
+    /**
+     * Merges another list into this one. Both lists must be sorted in
+     * NON-DECREASING order. The two node chains are walked side by side and the
+     * smaller head element is written into new full nodes, so the merge takes
+     * O(n + m) time and no intermediate array. Of equal elements, the ones from
+     * this list come first.
+     *
+     * @param other    sorted list whose elements are merged in; it is not changed
+     * @param distinct whether to drop elements equal to the one kept before them
+     */
+    public void mergeSorted(StoutList<E> other, boolean distinct) {
+        beforeWrite();
+        Node a = head.next;
+        Node b = other.head.next;
+        int ai = 0;
+        int bi = 0;
+
+        Node first = null;
+        Node last = null;
+        E previous = null;
+        int total = 0;
+        while (a != tail || b != other.tail) {
+            E item;
+            if (b == other.tail || (a != tail && a.data[ai].compareTo(b.data[bi]) <= 0)) {
+                item = a.data[ai];
+                if (++ai == a.count) {
+                    a = a.next;
+                    ai = 0;
+                }
+            } else {
+                item = b.data[bi];
+                if (++bi == b.count) {
+                    b = b.next;
+                    bi = 0;
+                }
+            }
+            if (distinct && previous != null && previous.compareTo(item) == 0)
+                continue;
+
+            if (last == null || last.count == nodeSize) {
+                Node n = newNode();
+                if (last == null) {
+                    first = n;
+                } else {
+                    last.next = n;
+                    n.previous = last;
+                }
+                last = n;
+            }
+            last.data[last.count++] = item;
+            previous = item;
+            total++;
+        }
+
+        for (Node n = head.next; n != tail; ) {
+            Node following = n.next;
+            recycle(n);
+            n = following;
+        }
+        if (first == null) {
+            head.next = tail;
+            tail.previous = head;
+        } else {
+            head.next = first;
+            first.previous = head;
+            last.next = tail;
+            tail.previous = last;
+        }
+        rebuildDirectory();
+        size = total;
+        modCount++;
+
+        if (membership != null) {
+            membership.clear();
+            for (Node n = head.next; n != tail; n = n.next) {
+                for (int i = 0; i < n.count; i++) {
+                    membership.add(n.data[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Splits the list in two at the given position. This list keeps the elements
+     * before pos, and the rest are moved into a new list by relinking their nodes.
+     * Only the node holding pos is split, and only the first node of the new list
+     * may need rebalancing. Both node directories are rebuilt, so the split takes
+     * time proportional to the number of nodes, plus the moved elements when the
+     * list keeps a membership index.
+     *
+     * @param pos position of the first element to move
+     * @return new list holding the elements from pos on, with the same node size
+     */
+    public StoutList<E> splitAt(int pos) {
+        beforeWrite();
+        if (pos < 0 || pos > size) {
+            throw new IndexOutOfBoundsException("Position " + pos + " is out of bounds.");
+        }
+
+        StoutList<E> result = newEmptyList();
+        result.adaptive = adaptive;
+        if (pos == size)
+            return result;
+
+        NodeInfo at = find(pos);
+        Node start = at.node;
+        if (at.offset > 0) {
+            // The moved part of the split node starts the new list
+            start = newNode();
+            at.node.transferTail(at.offset, start);
+            start.previous = at.node;
+            start.next = at.node.next;
+            start.next.previous = start;
+            at.node.next = start;
+        }
+        Node keep = start.previous;
+        Node last = tail.previous;
+
+        keep.next = tail;
+        tail.previous = keep;
+        result.head.next = start;
+        start.previous = result.head;
+        last.next = result.tail;
+        result.tail.previous = last;
+
+        if (membership != null) {
+            for (Node n = start; n != result.tail; n = n.next) {
+                for (int i = 0; i < n.count; i++) {
+                    membership.remove(n.data[i]);
+                    result.membership.add(n.data[i]);
+                }
+            }
+        }
+        result.size = size - pos;
+        size = pos;
+        modCount++;
+        rebuildDirectory();
+        result.rebuildDirectory();
+        result.rebalance(start);
+        return result;
+    }
+
+    /**
+     * Moves every element of another list to the end of this one by relinking its
+     * nodes, leaving the other list empty. Only the former last node of this list
+     * may need rebalancing against the first moved node. Elements are not checked
+     * against the ones already present, as with addAll(int, Collection). The node
+     * directory is rebuilt, so this takes time proportional to the number of
+     * nodes, plus the moved elements when this list keeps a membership index or
+     * the node sizes differ and the other list must be re-chunked first.
+     *
+     * @param other list whose elements are appended
+     */
+    public void concat(StoutList<E> other) {
+        if (other == this)
+            throw new IllegalArgumentException("Cannot concatenate a list with itself");
+        beforeWrite();
+        other.beforeWrite();
+        if (other.size == 0)
+            return;
+        if (other.nodeSize != nodeSize)
+            other.rechunk(nodeSize);
+
+        Node last = tail.previous;
+        Node first = other.head.next;
+        Node otherLast = other.tail.previous;
+        last.next = first;
+        first.previous = last;
+        otherLast.next = tail;
+        tail.previous = otherLast;
+
+        if (membership != null) {
+            for (Node n = first; n != tail; n = n.next) {
+                for (int i = 0; i < n.count; i++) {
+                    membership.add(n.data[i]);
+                }
+            }
+        }
+        size += other.size;
+        modCount++;
+        rebuildDirectory();
+        if (last != head)
+            rebalance(last);
+
+        other.head.next = other.tail;
+        other.tail.previous = other.head;
+        other.root = null;
+        other.size = 0;
+        if (other.membership != null)
+            other.membership.clear();
+        other.modCount++;
+    }
+
+    /**
+     * Returns an immutable view of the list as it is now, in O(1) time. The view
+     * shares every node with this list. On its first modification afterwards,
+     * this list gives itself new node objects that still share the data arrays,
+     * which costs time proportional to the number of nodes. That is not a
+     * structural modification: open iterators and forEach() carry on over the new
+     * nodes. From then on a write copies the array of each node it changes, so it
+     * pays O(nodeSize) extra per node. The snapshot has no membership index, and every method of it that
+     * would modify it throws UnsupportedOperationException. Its get() leaves
+     * the finger alone, so threads may read one snapshot at the same time while
+     * this list keeps changing.
+     *
+     * @return a point-in-time view of the list
+     */
+    public StoutList<E> snapshot() {
+        if (frozen)
+            return this;
+
+        StoutList<E> snap = newEmptyList();
+        snap.head = head;
+        snap.tail = tail;
+        snap.root = root;
+        snap.size = size;
+        snap.membership = null;
+        snap.frozen = true;
+        spineShared = true;
+        return snap;
+    }
+
+    /**
+     * Called at the start of every modification. Rejects it on a snapshot, and
+     * stops sharing nodes with snapshots otherwise.
+     */
+    private void beforeWrite() {
+        if (frozen)
+            throw new UnsupportedOperationException("Snapshots cannot be modified");
+        if (spineShared)
+            unshare();
+    }
+
+    /**
+     * Replaces the sentinels and every node of the list with new node objects
+     * whose data arrays are still shared with the snapshots, marked so that they
+     * are copied before being written to. Links, counts and the directory of the
+     * snapshots' nodes are never touched again. Open cursors notice the new
+     * spineEpoch and move onto the new nodes at the same position.
+     */
+    private void unshare() {
+        Node newHead = new Node(head.data);
+        Node last = newHead;
+        for (Node n = head.next; n != tail; n = n.next) {
+            Node copy = new Node(n.data);
+            copy.count = n.count;
+            copy.shared = true;
+            last.next = copy;
+            copy.previous = last;
+            last = copy;
+        }
+        Node newTail = new Node(tail.data);
+        last.next = newTail;
+        newTail.previous = last;
+
+        head = newHead;
+        tail = newTail;
+        rebuildDirectory();
+        finger = null;
+        spineShared = false;
+        spineEpoch++;
+    }
+
+    /**
+     * @return an empty list of the same kind, with the same node size and index
+     *         setting, to receive the elements split off by splitAt()
+     */
+    StoutList<E> newEmptyList() {
+        return new StoutList<>(nodeSize, membership != null);
+    }
+
+    /**
+     * Replaces the nodes of the list with new ones packed from the given array, so
+     * that every node but (possibly) the last one is full, then rebuilds the node
+     * directory. The array must hold the same elements as the list, in any order,
+     * so the size and membership index stay valid.
+     *
+     * @param arr elements in their new order
+     */
+    private void load(E[] arr) {
+        for (Node n = head.next; n != tail; ) {
+            Node following = n.next;
+            recycle(n);
+            n = following;
+        }
+
+        Node last = head;
+        for (int pos = 0; pos < arr.length; pos += nodeSize) {
+            Node n = newNode();
+            n.count = Math.min(nodeSize, arr.length - pos);
+            System.arraycopy(arr, pos, n.data, 0, n.count);
+            n.previous = last;
+            last.next = n;
+            last = n;
+        }
+        last.next = tail;
+        tail.previous = last;
+        rebuildDirectory();
+        modCount++;
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return new StoutListIterator();
+    }
+
+    @Override
+    public Object[] toArray() {
+        Object[] arr = new Object[size];
+        copyInto(arr);
+        return arr;
+    }
+
+    @Override
+    public <T> T[] toArray(T[] a) {
+        if (a.length < size)
+            a = (T[]) Array.newInstance(a.getClass().getComponentType(), size);
+        copyInto(a);
+        if (a.length > size)
+            a[size] = null;
+        return a;
+    }
+
+    @Override
+    public void forEach(Consumer<? super E> action) {
+        if (action == null)
+            throw new NullPointerException();
+        int expectedModCount = modCount;
+        int epoch = spineEpoch;
+        int done = 0;
+        Node temp = head.next;
+        int i = 0;
+        while (temp != tail) {
+            E[] data = temp.data;
+            // Stop as soon as the action modifies the list, before reading cleared slots
+            for (int n = temp.count; i < n && modCount == expectedModCount && spineEpoch == epoch; i++, done++) {
+                action.accept(data[i]);
+            }
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            if (spineEpoch != epoch) {
+                // A set() unshared the nodes, so carry on from the same position
+                epoch = spineEpoch;
+                NodeInfo at = find(done);
+                temp = at.node;
+                i = at.offset;
+            } else {
+                temp = temp.next;
+                i = 0;
+            }
+        }
+        recordScan(size);
+    }
+
+    /**
+     * Hands the live contents of each node to the consumer, front to back, without
+     * copying. Each call receives a node's data array with the offset and number of
+     * its elements, so the consumer can run a plain indexed loop over a batch.
+     *
+     * @param consumer receives each node's elements
+     * @throws ConcurrentModificationException if the consumer modifies the list
+     */
+    public void forEachChunk(ChunkConsumer consumer) {
+        if (consumer == null)
+            throw new NullPointerException();
+        int expectedModCount = modCount;
+        int epoch = spineEpoch;
+        int done = 0;
+        for (Node temp = head.next; temp != tail; ) {
+            consumer.accept(temp.data, 0, temp.count);
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            done += temp.count;
+            if (spineEpoch != epoch) {
+                // A set() unshared the nodes, so carry on from the same position
+                epoch = spineEpoch;
+                temp = find(done).node;
+            } else {
+                temp = temp.next;
+            }
+        }
+        recordScan(size);
+    }
+
+    /**
+     * Compares the elements node by node with those of the other list, stopping at
+     * the first difference.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (o == this)
+            return true;
+        if (!(o instanceof List))
+            return false;
+        List<?> other = (List<?>) o;
+        if (other.size() != size)
+            return false;
+
+        Iterator<?> iter = other.iterator();
+        for (Node temp = head.next; temp != tail; temp = temp.next) {
+            for (int i = 0; i < temp.count; i++) {
+                if (!iter.hasNext() || !temp.data[i].equals(iter.next()))
+                    return false;
+            }
+        }
+        return !iter.hasNext();
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 1;
+        for (Node temp = head.next; temp != tail; temp = temp.next) {
+            for (int i = 0; i < temp.count; i++) {
+                hash = 31 * hash + temp.data[i].hashCode();
+            }
+        }
+        return hash;
+    }
+
+    @Override
+    public ListIterator<E> listIterator() {
+        return new StoutListIterator();
+    }
+
+    @Override
+    public ListIterator<E> listIterator(int index) {
+        return new StoutListIterator(index);
+    }
+
+    /**
+     * Returns a view of the elements from position from (inclusive) to to
+     * (exclusive). The view reads and edits the nodes of this list directly, and
+     * sublists of the view are views of this list too, so nesting adds no layers.
+     *
+     * @param from position of the first element of the view
+     * @param to   position after the last element of the view
+     * @return view of the range
+     */
+    @Override
+    public List<E> subList(int from, int to) {
+        if (from < 0 || to > size || from > to) {
+            throw new IndexOutOfBoundsException("Range " + from + " to " + to + " is out of bounds.");
+        }
+        return new SubList(null, from, to - from);
+    }
+
+    /**
+     * Returns a spliterator that reads the nodes directly and splits on node
+     * boundaries. It reports DISTINCT when the membership index shows that no
+     * element is stored twice.
+     */
+    @Override
+    public Spliterator<E> spliterator() {
+        return new StoutListSpliterator(head.next, 0, 0, size, spliteratorCharacteristics());
+    }
+
+    /**
+     * @return the characteristics reported by spliterators over this list
+     */
+    int spliteratorCharacteristics() {
+        int characteristics = Spliterator.ORDERED | Spliterator.SIZED | Spliterator.SUBSIZED
+                | Spliterator.NONNULL;
+        if (membership != null && membership.duplicates == 0)
+            characteristics |= Spliterator.DISTINCT;
+        return characteristics;
+    }
+
+    /**
+     * Searches for the key in a list whose elements are in non-decreasing order.
+     * Descends the node directory comparing the key with the first and last
+     * element of each node, then searches within the node that spans it, so the
+     * search takes O(log n) compareTo() calls.
+     *
+     * @param key element to search for
+     * @return position of an element equal to the key, or (-(insertion point) - 1)
+     *         where the insertion point is the position of the first greater
+     *         element
+     */
+    int binarySearch(E key) {
+        Node node = root;
+        int base = 0; // number of elements known to precede the current subtree
+        while (node != null) {
+            if (key.compareTo(node.data[0]) < 0) {
+                node = node.left;
+            } else if (key.compareTo(node.data[node.count - 1]) > 0) {
+                base += weightOf(node.left) + node.count;
+                node = node.right;
+            } else {
+                base += weightOf(node.left);
+                int i = Arrays.binarySearch(node.data, 0, node.count, key);
+                return i >= 0 ? base + i : i - base;
+            }
+        }
+        return -base - 1;
+    }
+
+    /**
+     * Returns a string representation of this list showing the internal structure
+     * of the nodes.
+     */
+    public String toStringInternal() {
+        return toStringInternal(null);
+    }
+
+    /**
+     * Returns a string representation of this list showing the internal structure
+     * of the nodes and the position of the iterator.
+     *
+     * @param iter an iterator for this list
      */
     public String toStringInternal(ListIterator<E> iter) {
         int count = 0;
@@ -457,7 +1864,7 @@ public class StoutList<E extends Comparable<? super E>> extends AbstractSequenti
          * Array of actual data elements.
          */
 
-        public E[] data = (E[]) new Comparable[nodeSize];
+        public E[] data;
 
         /**
          * Link to next node.
@@ -475,6 +1882,46 @@ public class StoutList<E extends Comparable<? super E>> extends AbstractSequenti
          */
         public int count;
 
+        /**
+         * Children and parent of this node in the node directory.
+         */
+        Node left, right, parent;
+
+        /**
+         * Random heap priority that keeps the directory balanced in expectation.
+         */
+        final int priority = ThreadLocalRandom.current().nextInt();
+
+        /**
+         * Number of elements stored in this node and its directory descendants.
+         */
+        int weight;
+
+        /**
+         * Whether data is shared with a snapshot and must be copied before it is
+         * written to.
+         */
+        boolean shared;
+
+        Node() {
+            this((E[]) new Comparable[nodeSize]);
+        }
+
+        Node(E[] data) {
+            this.data = data;
+        }
+
+        /**
+         * Gives this node a private copy of its data array if the array is shared
+         * with a snapshot. Called before every write to data.
+         */
+        void own() {
+            if (shared) {
+                data = data.clone();
+                shared = false;
+            }
+        }
+
         /**
          * Adds an item to this node at the first available offset. Precondition: count
          * < nodeSize
@@ -482,17 +1929,18 @@ public class StoutList<E extends Comparable<? super E>> extends AbstractSequenti
          * @param item element to be added
          */
         void addItem(E item) {
-            if (count >= nodeSize) {
+            if (count >= data.length) {
                 return;
             }
+            own();
             data[count++] = item;
-
+            reweigh(1);
         }
 
 
         /**
-         * Adds an item to this node at the indicated offset, shifting elements to the
-         * right as necessary.
+         * Adds an item to this node at the indicated offset, shifting the elements
+         * after it to the right as one block.
          *
          * Precondition: count < nodeSize
          *
@@ -500,263 +1948,717 @@ public class StoutList<E extends Comparable<? super E>> extends AbstractSequenti
          * @param item   element to be added
          */
         void addItem(int offset, E item) {
-            if (count >= nodeSize) {
+            if (count >= data.length) {
                 return;
             }
-            for (int i = count - 1; i >= offset; --i) {
-                data[i + 1] = data[i];
-            }
+            own();
+            System.arraycopy(data, offset, data, offset + 1, count - offset);
             ++count;
             data[offset] = item;
+            reweigh(1);
+        }
+
+        /**
+         * Deletes an element from this node at the indicated offset, shifting the
+         * elements after it left as one block. Precondition: 0 <= offset < count
+         *
+         * @param offset
+         */
+        void removeItem(int offset) {
+            own();
+            System.arraycopy(data, offset + 1, data, offset, count - offset - 1);
+            data[count - 1] = null;
+            --count;
+            reweigh(-1);
+        }
+
+        /**
+         * Moves the elements at offsets from through count - 1 to the end of
+         * target as one block. Precondition: target.count + count - from <=
+         * nodeSize
+         *
+         * @param from   offset of the first element to move
+         * @param target node receiving the elements
+         */
+        void transferTail(int from, Node target) {
+            int moved = count - from;
+            own();
+            target.own();
+            System.arraycopy(data, from, target.data, target.count, moved);
+            Arrays.fill(data, from, count, null);
+            target.count += moved;
+            target.reweigh(moved);
+            count = from;
+            reweigh(-moved);
+        }
+
+        /**
+         * Adds delta to the weight of this node and of every directory ancestor.
+         *
+         * @param delta change in the number of elements of this node
+         */
+        void reweigh(int delta) {
+            for (Node n = this; n != null; n = n.parent) {
+                n.weight += delta;
+            }
+        }
+    }
+
+    /**
+     * List iterator that walks the nodes directly. The cursor is the node holding
+     * the next element and the offset of that element within the node, so moving
+     * forward or backward never copies the list. The iterator fails fast with a
+     * ConcurrentModificationException if the list is structurally modified other
+     * than through the iterator itself.
+     */
+    private class StoutListIterator implements ListIterator<E> {
+        final int prevAction = 0;
+        final int nextAction = 1;
+        /**
+         * pointer cursor to track where the iterator is
+         */
+        int currPosition;
+
+        /**
+         * Node holding the element returned by the next call to next(), or tail when
+         * the iterator is at the end of the list.
+         */
+        Node node;
+
+        /**
+         * Offset of the next element within node. May equal node.count after a call
+         * to next(), in which case the next element is the first one of node.next.
+         */
+        int offset;
+
+        /**
+         * int variable to track the action taken by the program used to determine
+         * whether an item should be set or removed in set() or remove()
+         */
+        int action;
+
+        /**
+         * Value of modCount that the iterator expects the list to have.
+         */
+        int expectedModCount;
+
+        /**
+         * Value of spineEpoch when node was found.
+         */
+        int epoch;
+
+        /**
+         * Elements read since the last call to reportScan().
+         */
+        long scanned;
+
+        /**
+         * Default constructor
+         */
+        public StoutListIterator() {
+            this(0);
+        }
+
+        /**
+         * Constructor finds node at a given position.
+         *
+         * @param pos
+         */
+        public StoutListIterator(int pos) {
+            if (pos < 0 || pos > size)
+                throw new IndexOutOfBoundsException("Position " + pos + " is out of bounds.");
+
+            action = -1;
+            moveTo(pos);
+        }
+
+        /**
+         * Places the cursor before the element at the given position.
+         *
+         * @param pos position of the next element
+         */
+        private void moveTo(int pos) {
+            reportScan();
+            NodeInfo nodeInfo = find(pos);
+            node = nodeInfo.node;
+            offset = nodeInfo.offset;
+            currPosition = pos;
+            expectedModCount = modCount;
+            epoch = spineEpoch;
+        }
+
+        /**
+         * Throws if the list was structurally modified behind the iterator's back,
+         * and finds the cursor's node again if unshare() has replaced the nodes.
+         */
+        private void checkForComodification() {
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            if (epoch != spineEpoch) {
+                NodeInfo nodeInfo = find(currPosition);
+                node = nodeInfo.node;
+                offset = nodeInfo.offset;
+                epoch = spineEpoch;
+            }
+        }
+
+        /**
+         * Adds the elements read so far to the list's workload in one write.
+         */
+        private void reportScan() {
+            if (scanned > 0) {
+                recordScan(scanned);
+                scanned = 0;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            // Check if the current position is within the bounds of the list size
+            if (currPosition < size)
+                return true;
+            reportScan();
+            return false;
+        }
+
+
+        @Override
+        public void add(E item) {
+            if (item == null)
+                throw new NullPointerException();
+            checkForComodification();
 
+            // Add the item at the current position in the list
+            StoutList.this.add(currPosition, item);
+
+            // The insertion may have split or refilled the cursor's node
+            moveTo(currPosition + 1);
+            action = -1; // Reset action
+        }
+
+
+        @Override
+        public E next() {
+            checkForComodification();
+            if (!hasNext())
+                throw new NoSuchElementException();
+
+            if (offset == node.count) {
+                node = node.next;
+                offset = 0;
+            }
+
+            action = nextAction; // Set to next
+            scanned++;
+            currPosition++;
+            return node.data[offset++];
+        }
+
+
+        @Override
+        public int nextIndex() {
+            return currPosition;
+        }
+
+
+        @Override
+        public void remove() {
+            if (action == -1)
+                throw new IllegalStateException();
+            checkForComodification();
+
+            if (action == nextAction) {
+                // The removed element sits just before the cursor
+                currPosition--;
+            }
+            StoutList.this.remove(currPosition);
+
+            // The removal may have borrowed into or merged away the cursor's node
+            moveTo(currPosition);
+            action = -1; // Reset action
+        }
+
+        @Override
+        public boolean hasPrevious() {
+            if (currPosition > 0)
+                return true;
+            reportScan();
+            return false;
+        }
+
+        @Override
+        public int previousIndex() {
+            return currPosition - 1;
+        }
+
+
+
+        @Override
+        public void set(E item) {
+            if (item == null)
+                throw new NullPointerException();
+            if (action == -1)
+                throw new IllegalStateException();
+            checkForComodification();
+
+            // Set the new value at the last returned position
+            StoutList.this.set(action == nextAction ? currPosition - 1 : currPosition, item);
+        }
+
+
+        @Override
+        public E previous() {
+            checkForComodification();
+            if (!hasPrevious())
+                throw new NoSuchElementException();
+
+            if (offset == 0) {
+                node = node.previous;
+                offset = node.count;
+            }
+
+            action = prevAction; // Set the action to 'previous'
+            scanned++;
+            currPosition--;
+            return node.data[--offset];
         }
 
+
+    }
+
+    /**
+     * Spliterator over a range of positions of the list. Traversal reads each
+     * node's data array in a tight loop, and trySplit() cuts the range at the node
+     * boundary nearest its middle, found through the node directory.
+     */
+    private class StoutListSpliterator implements Spliterator<E> {
         /**
-         * Deletes an element from this node at the indicated offset, shifting elements
-         * left as necessary. Precondition: 0 <= offset < count
-         *
-         * @param offset
+         * Splits stop once a range holds fewer than this many nodes' worth.
          */
-        void removeItem(int offset) {
-            E item = data[offset];
-            for (int i = offset + 1; i < nodeSize; ++i) {
-                data[i - 1] = data[i];
-            }
-            data[count - 1] = null;
-            --count;
-        }
-    }
+        private static final int MIN_SPLIT_NODES = 2;
 
-    private class StoutListIterator implements ListIterator<E> {
-        final int prevAction = 0;
-        final int nextAction = 1;
         /**
-         * pointer cursor to track where the iterator is
+         * Node and offset of the next element.
          */
-        int currPosition;
+        Node node;
+        int offset;
 
         /**
-         * array list of data in a node
+         * Position of the next element and the end of the range, exclusive.
          */
-        public E[] dataList;
+        int index;
+        final int fence;
+
+        final int characteristics;
+        final int expectedModCount;
 
         /**
-         * int variable to track the action taken by the program used to determine
-         * whether an item should be set or removed in set() or remove()
+         * Value of spineEpoch when node was found.
          */
-        int action;
+        int epoch;
 
         /**
-         * Default constructor
+         * Elements read by tryAdvance(), added to the list's workload once the range
+         * is exhausted.
          */
-        public StoutListIterator() {
-            currPosition = 0;
-            action = -1;
+        long scanned;
 
-            dataList = (E[]) new Comparable[size];
-            int tempPos = 0;
-            Node temp = head.next;
-            while (temp != null) {
-                for (int i = 0; i < temp.count; i++) {
-                    dataList[tempPos] = temp.data[i];
-                    tempPos++;
-                }
-                temp = temp.next;
-            }
-            ;
+        StoutListSpliterator(Node node, int offset, int index, int fence, int characteristics) {
+            this.node = node;
+            this.offset = offset;
+            this.index = index;
+            this.fence = fence;
+            this.characteristics = characteristics;
+            this.expectedModCount = modCount;
+            this.epoch = spineEpoch;
         }
 
         /**
-         * Constructor finds node at a given position.
-         *
-         * @param pos
+         * Finds the node of the next element again if unshare() has replaced the
+         * nodes.
          */
-        public StoutListIterator(int pos) {
-            currPosition = pos;
-            action = -1;
-
-            dataList = (E[]) new Comparable[size];
-            int tempPos = 0;
-            Node temp = head.next;
-            while (temp != null) {
-                for (int i = 0; i < temp.count; i++) {
-                    dataList[tempPos] = temp.data[i];
-                    tempPos++;
-                }
-                temp = temp.next;
+        private void checkEpoch() {
+            if (epoch != spineEpoch && index < fence) {
+                NodeInfo nodeInfo = find(index);
+                node = nodeInfo.node;
+                offset = nodeInfo.offset;
+                epoch = spineEpoch;
             }
-            ;
-
         }
 
         @Override
-        public boolean hasNext() {
-            // Check if the current position is within the bounds of the list size
-            if (currPosition < size) {
-                return true; // there is a next element
-            } else {
-                return false; // Otherwise, there is no next element
+        public boolean tryAdvance(Consumer<? super E> action) {
+            if (action == null)
+                throw new NullPointerException();
+            if (index >= fence) {
+                reportScan(0);
+                return false;
             }
+            checkEpoch();
+            if (offset == node.count) {
+                node = node.next;
+                offset = 0;
+            }
+            E item = node.data[offset++];
+            index++;
+            scanned++;
+            action.accept(item);
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            return true;
         }
 
-
         @Override
-        public void add(E item) {
-            if (item == null)
+        public void forEachRemaining(Consumer<? super E> action) {
+            if (action == null)
                 throw new NullPointerException();
-
-            // Add the item at the current position in the list
-            StoutList.this.add(currPosition, item);
-            currPosition++;
-
-            // Rebuild the dataList after the addition of a new element
-            dataList = (E[]) new Comparable[size];
-            int tempPosition = 0;
-            Node temp = head.next;
-            while (temp != null) {
-                for (int i = 0; i < temp.count; i++) {
-                    dataList[tempPosition] = temp.data[i];
-                    tempPosition++;
+            int start = index;
+            while (index < fence) {
+                checkEpoch();
+                if (offset == node.count) {
+                    node = node.next;
+                    offset = 0;
                 }
-                temp = temp.next;
+                int end = Math.min(node.count, offset + fence - index);
+                E[] data = node.data;
+                int i = offset;
+                // Stop as soon as the action modifies the list, before reading cleared
+                // slots, or unshares the nodes, before reading stale ones
+                for (; i < end && modCount == expectedModCount && spineEpoch == epoch; i++) {
+                    action.accept(data[i]);
+                }
+                if (modCount != expectedModCount)
+                    throw new ConcurrentModificationException();
+                index += i - offset;
+                offset = i;
             }
-            action = -1; // Reset action
+            reportScan(index - start);
         }
 
+        /**
+         * Adds the elements read by this spliterator to the list's workload in one
+         * write.
+         *
+         * @param elements elements read by the current traversal
+         */
+        private void reportScan(long elements) {
+            if (scanned + elements > 0) {
+                recordScan(scanned + elements);
+                scanned = 0;
+            }
+        }
 
         @Override
-        public E next() {
-
-            if (!hasNext())
-                throw new IndexOutOfBoundsException();
-
-            action = nextAction; // Set to next
+        public Spliterator<E> trySplit() {
+            if (fence - index < MIN_SPLIT_NODES * nodeSize)
+                return null;
+            checkEpoch();
+
+            // Cut at the start of the node holding the middle, or of the next one
+            NodeInfo nodeInfo = find(index + (fence - index) / 2);
+            Node splitNode = nodeInfo.node;
+            int split = index + (fence - index) / 2 - nodeInfo.offset;
+            if (split <= index) {
+                split += splitNode.count;
+                splitNode = splitNode.next;
+            }
+            if (split >= fence)
+                return null;
+
+            Spliterator<E> prefix = new StoutListSpliterator(node, offset, index, split, characteristics);
+            node = splitNode;
+            offset = 0;
+            index = split;
+            return prefix;
+        }
 
-            return dataList[currPosition++]; // Return the next element and increment the position
+        @Override
+        public long estimateSize() {
+            return fence - index;
         }
 
+        @Override
+        public int characteristics() {
+            return characteristics;
+        }
 
         @Override
-        public int nextIndex() {
-            return currPosition;
+        public Comparator<? super E> getComparator() {
+            if ((characteristics & Spliterator.SORTED) != 0)
+                return null; // sorted by natural ordering
+            throw new IllegalStateException();
         }
+    }
 
+    /**
+     * Receives the elements of a list in chunks, as slices of the arrays that hold
+     * them. The slices are live: the array must not be written to or kept beyond
+     * the call. The array is typed Object[] because the node arrays are not
+     * created with the element type; each element may be cast to the list's
+     * element type.
+     */
+    @FunctionalInterface
+    public interface ChunkConsumer {
+        /**
+         * @param chunk  array holding the elements
+         * @param offset index of the first element of the chunk
+         * @param length number of elements in the chunk
+         */
+        void accept(Object[] chunk, int offset, int length);
+    }
 
-        @Override
-        public void remove() {
-            if (action == nextAction) {
-                // Remove the element at the current position
-                StoutList.this.remove(currPosition - 1);
-                // Rebuild the dataList after removal
-                dataList = (E[]) new Comparable[size];
-                int tempPosition = 0;
-                Node temp = head.next;
-                while (temp != null) {
-                    for (int i = 0; i < temp.count; i++) {
-                        dataList[tempPosition] = temp.data[i];
-                        tempPosition++;
-                    }
-                    temp = temp.next;
-                }
-                currPosition--;
+    /**
+     * View of a range of positions of the list. Element access goes straight to
+     * the list, and the node and offset of the first element are remembered until
+     * the list is structurally modified. Edits made through the view update the
+     * length of the view and of every view it was taken from, so those stay
+     * usable; any other structural modification of the list makes the view throw
+     * ConcurrentModificationException.
+     */
+    private class SubList extends AbstractList<E> {
+        /**
+         * View this one was taken from, or null if it was taken from the list.
+         */
+        final SubList parent;
+
+        /**
+         * Position of the first element of the view within the list.
+         */
+        final int offset;
 
-                action = -1; // Reset action
+        /**
+         * Number of elements in the view.
+         */
+        int size;
 
-                if (currPosition < 0)
-                    currPosition = 0;
+        /**
+         * Value of the list's modCount that the view expects.
+         */
+        int expectedModCount;
 
-            } else if (action == prevAction) {
-                // Remove the element at the current position (for previous action)
-                StoutList.this.remove(currPosition);
+        /**
+         * Node and offset of the first element, valid while the list's modCount
+         * and spineEpoch equal startModCount and startEpoch.
+         */
+        NodeInfo start;
+        int startModCount;
+        int startEpoch;
 
-                // Rebuild the dataList after removal
-                dataList = (E[]) new Comparable[size];
+        SubList(SubList parent, int offset, int size) {
+            this.parent = parent;
+            this.offset = offset;
+            this.size = size;
+            this.expectedModCount = StoutList.this.modCount;
+        }
 
-                int tPos = 0;
-                Node temp = head.next;
-                while (temp != null) {
+        @Override
+        public int size() {
+            checkForComodification();
+            return size;
+        }
 
-                    for (int i = 0; i < temp.count; i++) {
-                        dataList[tPos] = temp.data[i];
-                        tPos++;
-                    }
+        @Override
+        public E get(int pos) {
+            checkIndex(pos);
+            checkForComodification();
+            return StoutList.this.get(offset + pos);
+        }
 
-                    temp = temp.next;
-                }
-                action = -1; // Reset action
-            }
+        @Override
+        public E set(int pos, E item) {
+            checkIndex(pos);
+            checkForComodification();
+            return StoutList.this.set(offset + pos, item);
         }
 
         @Override
-        public boolean hasPrevious() {
-            return currPosition > 0;
+        public void add(int pos, E item) {
+            checkPosition(pos);
+            checkForComodification();
+            StoutList.this.add(offset + pos, item);
+            resized(1);
         }
 
         @Override
-        public int previousIndex() {
-            return currPosition - 1;
+        public E remove(int pos) {
+            checkIndex(pos);
+            checkForComodification();
+            E item = StoutList.this.remove(offset + pos);
+            resized(-1);
+            return item;
         }
 
+        @Override
+        protected void removeRange(int from, int to) {
+            checkForComodification();
+            StoutList.this.removeRange(offset + from, offset + to);
+            resized(from - to);
+        }
 
+        @Override
+        public boolean addAll(Collection<? extends E> c) {
+            return addAll(size, c);
+        }
 
         @Override
-        public void set(E item) {
-            if (action == nextAction) {
+        public boolean addAll(int pos, Collection<? extends E> c) {
+            checkPosition(pos);
+            checkForComodification();
+            int before = StoutList.this.size;
+            StoutList.this.addAll(offset + pos, c);
+            int added = StoutList.this.size - before;
+            if (added == 0)
+                return false;
+            resized(added);
+            return true;
+        }
 
-                Node temp = head.next;
+        @Override
+        public void forEach(Consumer<? super E> action) {
+            if (action == null)
+                throw new NullPointerException();
+            checkForComodification();
+            NodeInfo first = start();
+            Node node = first.node;
+            int from = first.offset;
+            int epoch = spineEpoch;
+            int remaining = size;
+            while (remaining > 0) {
+                int end = Math.min(node.count, from + remaining);
+                int i = from;
+                for (; i < end && StoutList.this.modCount == expectedModCount && spineEpoch == epoch; i++) {
+                    action.accept(node.data[i]);
+                }
+                checkForComodification();
+                remaining -= i - from;
+                if (spineEpoch != epoch) {
+                    // A set() unshared the nodes, so carry on from the same position
+                    epoch = spineEpoch;
+                    NodeInfo at = find(offset + size - remaining);
+                    node = at.node;
+                    from = at.offset;
+                } else {
+                    node = node.next;
+                    from = 0;
+                }
+            }
+        }
 
-                int tempPosition = 0;
+        @Override
+        public ListIterator<E> listIterator(int index) {
+            checkPosition(index);
+            checkForComodification();
+            ListIterator<E> iter = StoutList.this.listIterator(offset + index);
+
+            return new ListIterator<E>() {
+                @Override
+                public boolean hasNext() {
+                    return nextIndex() < size;
+                }
 
-                while (temp != tail) {
-                    if (tempPosition + temp.count <= currPosition - 1) {
-                        tempPosition += temp.count;
-                        temp = temp.next;
-                        continue;
-                    }
+                @Override
+                public E next() {
+                    if (!hasNext())
+                        throw new NoSuchElementException();
+                    return iter.next();
+                }
 
-                    int offset = currPosition - tempPosition - 1;
-                    temp.data[offset] = item; // Set the new value at the specified position
-                    dataList[currPosition - 1] = item;
-                    return;
+                @Override
+                public boolean hasPrevious() {
+                    return previousIndex() >= 0;
                 }
-            } else if (action == prevAction) {
-                Node temp = head.next;
-                int tempPosition = 0;
 
-                while (temp != null) {
-                    if (tempPosition + temp.count <= currPosition) {
-                        tempPosition = tempPosition + temp.count;
+                @Override
+                public E previous() {
+                    if (!hasPrevious())
+                        throw new NoSuchElementException();
+                    return iter.previous();
+                }
 
-                        temp = temp.next;
+                @Override
+                public int nextIndex() {
+                    return iter.nextIndex() - offset;
+                }
 
-                        continue;
-                    }
-                    int offset = currPosition - tempPosition;
+                @Override
+                public int previousIndex() {
+                    return iter.previousIndex() - offset;
+                }
 
-                    temp.data[offset] = item; // Set the new value at the specified position
+                @Override
+                public void remove() {
+                    iter.remove();
+                    resized(-1);
+                }
 
-                    dataList[currPosition] = item;
+                @Override
+                public void set(E item) {
+                    iter.set(item);
+                }
 
-                    return;
+                @Override
+                public void add(E item) {
+                    iter.add(item);
+                    resized(1);
                 }
-            }
+            };
         }
 
+        @Override
+        public List<E> subList(int from, int to) {
+            if (from < 0 || to > size || from > to) {
+                throw new IndexOutOfBoundsException("Range " + from + " to " + to + " is out of bounds.");
+            }
+            checkForComodification();
+            return new SubList(this, offset + from, to - from);
+        }
 
         @Override
-        public E previous() {
-            if (!hasPrevious())
-                throw new NoSuchElementException();
+        public Spliterator<E> spliterator() {
+            checkForComodification();
+            NodeInfo first = start();
+            return new StoutListSpliterator(first.node, first.offset, offset, offset + size,
+                    spliteratorCharacteristics());
+        }
 
-            action = prevAction; // Set the action to 'previous'
+        /**
+         * @return node and offset of the first element of the view
+         */
+        private NodeInfo start() {
+            if (start == null || startModCount != StoutList.this.modCount || startEpoch != spineEpoch) {
+                start = find(offset);
+                startModCount = StoutList.this.modCount;
+                startEpoch = spineEpoch;
+            }
+            return start;
+        }
 
-            currPosition--;
+        /**
+         * Adds delta to the length of this view and of the views it was taken from,
+         * after an edit made through this view.
+         */
+        private void resized(int delta) {
+            for (SubList view = this; view != null; view = view.parent) {
+                view.size += delta;
+                view.expectedModCount = StoutList.this.modCount;
+                view.modCount++;
+            }
+        }
 
-            return dataList[currPosition];
-            // Return the previous element
+        private void checkIndex(int pos) {
+            if (pos < 0 || pos >= size)
+                throw new IndexOutOfBoundsException("Position " + pos + " is out of bounds.");
         }
 
+        private void checkPosition(int pos) {
+            if (pos < 0 || pos > size)
+                throw new IndexOutOfBoundsException("Position " + pos + " is out of bounds.");
+        }
 
+        private void checkForComodification() {
+            if (StoutList.this.modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+        }
     }
 
     /**
@@ -766,19 +2668,169 @@ public class StoutList<E extends Comparable<? super E>> extends AbstractSequenti
      * @return NodeInfo of specific point of the list
      */
     private NodeInfo find(int pos) {
-        Node temp = head.next;
-        int currPos = 0; // the current position
-        while (temp != tail) {
-            if (currPos + temp.count <= pos) { // If current position + node count is less than or equal to the target position
-                currPos += temp.count; // Move the current position by the count
-                temp = temp.next;
-                continue;
+        Node temp = root;
+        while (temp != null) {
+            int leftWeight = weightOf(temp.left);
+            if (pos < leftWeight) { // The target position lies in the left subtree
+                temp = temp.left;
+            } else if (pos < leftWeight + temp.count) {
+                // We have found the node containing the target position
+                return new NodeInfo(temp, pos - leftWeight);
+            } else { // Skip the left subtree and this node
+                pos -= leftWeight + temp.count;
+                temp = temp.right;
+            }
+        }
+        return new NodeInfo(tail, 0); // Position size is the start of the tail
+    }
+
+    /**
+     * @param node a directory node or null
+     * @return the number of elements in the subtree rooted at node
+     */
+    private int weightOf(Node node) {
+        return node == null ? 0 : node.weight;
+    }
+
+    /**
+     * Enters a node into the directory as the in-order successor of predecessor,
+     * then rotates it up until the heap order on priorities holds again.
+     *
+     * @param predecessor node directly before the new one, or head
+     * @param node        node to be entered
+     */
+    private void directoryInsertAfter(Node predecessor, Node node) {
+        node.left = null;
+        node.right = null;
+        node.parent = null;
+        node.weight = node.count;
+        if (root == null) {
+            root = node;
+            return;
+        }
+
+        Node parent;
+        if (predecessor != head && predecessor.right == null) {
+            parent = predecessor;
+            parent.right = node;
+        } else {
+            parent = predecessor == head ? root : predecessor.right;
+            while (parent.left != null) {
+                parent = parent.left;
+            }
+            parent.left = node;
+        }
+        node.parent = parent;
+        parent.reweigh(node.count);
+
+        while (node.parent != null && node.parent.priority < node.priority) {
+            rotateUp(node);
+        }
+    }
+
+    /**
+     * Removes a node from the directory by rotating it down until it has at most
+     * one child and splicing it out.
+     *
+     * @param node node to be removed
+     */
+    private void directoryRemove(Node node) {
+        while (node.left != null && node.right != null) {
+            rotateUp(node.left.priority > node.right.priority ? node.left : node.right);
+        }
+
+        Node child = node.left != null ? node.left : node.right;
+        Node parent = node.parent;
+        if (child != null) {
+            child.parent = parent;
+        }
+        if (parent == null) {
+            root = child;
+        } else {
+            if (parent.left == node) {
+                parent.left = child;
+            } else {
+                parent.right = child;
+            }
+            parent.reweigh(-node.count);
+        }
+
+        node.left = null;
+        node.right = null;
+        node.parent = null;
+        node.weight = node.count;
+    }
+
+    /**
+     * Rotates a directory node above its parent, keeping the in-order sequence and
+     * the subtree weights intact.
+     *
+     * @param node node to be rotated up
+     */
+    private void rotateUp(Node node) {
+        Node parent = node.parent;
+        Node grandparent = parent.parent;
+        if (parent.left == node) {
+            parent.left = node.right;
+            if (node.right != null) {
+                node.right.parent = parent;
+            }
+            node.right = parent;
+        } else {
+            parent.right = node.left;
+            if (node.left != null) {
+                node.left.parent = parent;
+            }
+            node.left = parent;
+        }
+        parent.parent = node;
+        node.parent = grandparent;
+        if (grandparent == null) {
+            root = node;
+        } else if (grandparent.left == parent) {
+            grandparent.left = node;
+        } else {
+            grandparent.right = node;
+        }
+
+        node.weight = parent.weight;
+        parent.weight = weightOf(parent.left) + weightOf(parent.right) + parent.count;
+    }
+
+    /**
+     * Rebuilds the directory from the linked nodes in linear time. The nodes are
+     * arranged into a Cartesian tree on their priorities with a stack, and each
+     * node's weight is filled in as it is popped, once its subtree is complete.
+     */
+    private void rebuildDirectory() {
+        ArrayList<Node> stack = new ArrayList<>();
+        root = null;
+        for (Node n = head.next; n != tail; n = n.next) {
+            n.left = null;
+            n.right = null;
+            n.parent = null;
+            Node last = null;
+            while (!stack.isEmpty() && stack.get(stack.size() - 1).priority < n.priority) {
+                last = stack.remove(stack.size() - 1);
+                last.weight = weightOf(last.left) + weightOf(last.right) + last.count;
+            }
+            n.left = last;
+            if (last != null) {
+                last.parent = n;
             }
-            // We have found the node containing the target position
-            NodeInfo nodeInfo = new NodeInfo(temp, pos - currPos); // Create a NodeInfo object with the node and offset
-            return nodeInfo; // Return the NodeInfo
+            if (!stack.isEmpty()) {
+                Node top = stack.get(stack.size() - 1);
+                top.right = n;
+                n.parent = top;
+            } else {
+                root = n;
+            }
+            stack.add(n);
+        }
+        while (!stack.isEmpty()) {
+            Node last = stack.remove(stack.size() - 1);
+            last.weight = weightOf(last.left) + weightOf(last.right) + last.count;
         }
-        return null; // If nothing is found
     }
 
 
@@ -814,27 +2866,6 @@ public class StoutList<E extends Comparable<? super E>> extends AbstractSequenti
 
 
 
-    /**
-     * Sort arr[] using the bubble sort algorithm in the NON-INCREASING order. For a
-     * description of bubble sort please refer to Section 6.1 in the project
-     * description. You must use the compareTo() method from an implementation of
-     * the Comparable interface by the class E or ? super E.
-     *
-     * @param arr array holding elements from the list
-     */
-    private void bubbleSort(E[] arr) {
-        int n = arr.length;
-        for (int i = 0; i < n - 1; i++) {
-            for (int j = 0; j < n - i - 1; j++) { // Compare adjacent elements and swap if necessary
-                if (arr[j].compareTo(arr[j + 1]) < 0) { // Compare elements in non-increasing order
-                    E temp = arr[j]; // Swap elements
-                    arr[j] = arr[j + 1];
-                    arr[j + 1] = temp;
-                }
-            }
-        }
-    }
-
     /**
      * Helper class to represent a specific point of the list
      */
@@ -848,6 +2879,123 @@ public class StoutList<E extends Comparable<? super E>> extends AbstractSequenti
         }
     }
 
+    /**
+     * Open-addressing hash table counting how many times each element occurs in the
+     * list. Positional inserts may store an element more than once, so an entry is
+     * only dropped when its count reaches zero. Collisions are resolved by linear
+     * probing and removals shift later entries back instead of leaving tombstones.
+     */
+    private static class MembershipIndex {
+        /**
+         * Initial number of slots, must be a power of two.
+         */
+        private static final int INITIAL_CAPACITY = 16;
+
+        private Object[] keys = new Object[INITIAL_CAPACITY];
+        private int[] counts = new int[INITIAL_CAPACITY];
 
+        /**
+         * Number of occupied slots.
+         */
+        private int distinct;
+
+        /**
+         * Number of occurrences beyond the first of each element, zero when every
+         * element of the list is distinct.
+         */
+        int duplicates;
+
+        boolean contains(Object item) {
+            return slotOf(item) >= 0;
+        }
+
+        void add(Object item) {
+            int slot = slotOf(item);
+            if (slot >= 0) {
+                counts[slot]++;
+                duplicates++;
+                return;
+            }
+            slot = -slot - 1;
+            keys[slot] = item;
+            counts[slot] = 1;
+            // keep the load factor at or below 3/4
+            if (++distinct * 4 > keys.length * 3)
+                resize(keys.length * 2);
+        }
+
+        void remove(Object item) {
+            int slot = slotOf(item);
+            if (slot < 0)
+                return;
+            if (--counts[slot] > 0) {
+                duplicates--;
+                return;
+            }
+
+            int mask = keys.length - 1;
+            int hole = slot;
+            int i = slot;
+            while (true) {
+                i = (i + 1) & mask;
+                if (keys[i] == null)
+                    break;
+                int home = hash(keys[i]) & mask;
+                // move the entry back unless its home lies cyclically in (hole, i]
+                boolean movable = (i > hole) ? (home <= hole || home > i) : (home <= hole && home > i);
+                if (movable) {
+                    keys[hole] = keys[i];
+                    counts[hole] = counts[i];
+                    hole = i;
+                }
+            }
+            keys[hole] = null;
+            counts[hole] = 0;
+            distinct--;
+        }
+
+        void clear() {
+            keys = new Object[INITIAL_CAPACITY];
+            counts = new int[INITIAL_CAPACITY];
+            distinct = 0;
+            duplicates = 0;
+        }
+
+        /**
+         * @return the slot holding the item, or -(free slot) - 1 if it is absent
+         */
+        private int slotOf(Object item) {
+            int mask = keys.length - 1;
+            int i = hash(item) & mask;
+            while (keys[i] != null) {
+                if (keys[i].equals(item))
+                    return i;
+                i = (i + 1) & mask;
+            }
+            return -i - 1;
+        }
+
+        private void resize(int capacity) {
+            Object[] oldKeys = keys;
+            int[] oldCounts = counts;
+            keys = new Object[capacity];
+            counts = new int[capacity];
+            int mask = capacity - 1;
+            for (int j = 0; j < oldKeys.length; j++) {
+                if (oldKeys[j] == null)
+                    continue;
+                int i = hash(oldKeys[j]) & mask;
+                while (keys[i] != null)
+                    i = (i + 1) & mask;
+                keys[i] = oldKeys[j];
+                counts[i] = oldCounts[j];
+            }
+        }
+
+        private static int hash(Object item) {
+            int h = item.hashCode() * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+    }
 
-}
\ No newline at end of file
+}
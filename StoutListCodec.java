@@ -0,0 +1,98 @@
+package edu.iastate.cs2280.hw3;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Encodes elements of type E as a fixed number of bytes, so that OffHeapStoutList
+ * can keep them in direct memory. Equal elements must encode to equal bytes, since
+ * the list compares encoded elements byte by byte when checking for duplicates.
+ *
+ * @param <E> type of the encoded elements
+ */
+public interface StoutListCodec<E> {
+    /**
+     * Codec for Long values, eight bytes each.
+     */
+    StoutListCodec<Long> LONG = new StoutListCodec<>() {
+        @Override
+        public int width() {
+            return Long.BYTES;
+        }
+
+        @Override
+        public void write(ByteBuffer buffer, int index, Long value) {
+            buffer.putLong(index, value);
+        }
+
+        @Override
+        public Long read(ByteBuffer buffer, int index) {
+            return buffer.getLong(index);
+        }
+    };
+
+    /**
+     * Codec for Integer values, four bytes each.
+     */
+    StoutListCodec<Integer> INTEGER = new StoutListCodec<>() {
+        @Override
+        public int width() {
+            return Integer.BYTES;
+        }
+
+        @Override
+        public void write(ByteBuffer buffer, int index, Integer value) {
+            buffer.putInt(index, value);
+        }
+
+        @Override
+        public Integer read(ByteBuffer buffer, int index) {
+            return buffer.getInt(index);
+        }
+    };
+
+    /**
+     * Codec for Double values, eight bytes each. NaN values are written in their
+     * canonical form so that they compare equal, as Double.equals() does.
+     */
+    StoutListCodec<Double> DOUBLE = new StoutListCodec<>() {
+        @Override
+        public int width() {
+            return Double.BYTES;
+        }
+
+        @Override
+        public void write(ByteBuffer buffer, int index, Double value) {
+            buffer.putLong(index, Double.doubleToLongBits(value));
+        }
+
+        @Override
+        public Double read(ByteBuffer buffer, int index) {
+            return Double.longBitsToDouble(buffer.getLong(index));
+        }
+    };
+
+    /**
+     * @return the number of bytes taken by every encoded element
+     */
+    int width();
+
+    /**
+     * Writes the value at the given absolute byte index of the buffer, without
+     * changing the buffer's position.
+     *
+     * @param buffer buffer to write into
+     * @param index  byte index of the first byte of the element
+     * @param value  element to encode, never null
+     */
+    void write(ByteBuffer buffer, int index, E value);
+
+    /**
+     * Reads the element at the given absolute byte index of the buffer, without
+     * changing the buffer's position.
+     *
+     * @param buffer buffer to read from
+     * @param index  byte index of the first byte of the element
+     * @return the decoded element
+     */
+    E read(ByteBuffer buffer, int index);
+}